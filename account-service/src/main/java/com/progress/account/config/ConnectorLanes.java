@@ -0,0 +1,146 @@
+package com.progress.account.config;
+
+import org.apache.catalina.connector.Connector;
+import org.apache.coyote.AbstractProtocol;
+import org.apache.tomcat.util.threads.TaskQueue;
+import org.apache.tomcat.util.threads.TaskThreadFactory;
+import org.apache.tomcat.util.threads.ThreadPoolExecutor;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Разделение входящего трафика на две полосы с отдельными пулами потоков Tomcat.
+ * Публичная полоса - основной порт server.port (вход, регистрация, профиль).
+ * Внутренняя полоса - дополнительный коннектор на server.internal.port для вызовов других сервисов
+ * (проверка токенов, данные пользователей) со своим пулом потоков и своей очередью,
+ * поэтому всплеск публичного трафика не увеличивает задержку проверки токенов.
+ */
+@Component
+public class ConnectorLanes implements WebServerFactoryCustomizer<TomcatServletWebServerFactory>, DisposableBean {
+    public static final String PUBLIC = "public";
+    public static final String INTERNAL = "internal";
+
+    private final int internalPort;
+    private final int internalThreads;
+    private final int internalMinSpareThreads;
+    private final int internalQueueSize;
+    private final int internalAcceptCount;
+
+    private final Map<String, Connector> connectors = new LinkedHashMap<>();
+    // Пул внутреннего коннектора создан здесь, поэтому Tomcat его не останавливает
+    private ThreadPoolExecutor internalExecutor;
+    private final Map<String, LaneCounters> counters = Map.of(PUBLIC, new LaneCounters(), INTERNAL, new LaneCounters());
+
+    public ConnectorLanes(@Value("${server.internal.port:9080}") int internalPort,
+                          @Value("${server.internal.threads:32}") int internalThreads,
+                          @Value("${server.internal.min-spare-threads:8}") int internalMinSpareThreads,
+                          @Value("${server.internal.queue-size:200}") int internalQueueSize,
+                          @Value("${server.internal.accept-count:100}") int internalAcceptCount)
+    {
+        this.internalPort = internalPort;
+        this.internalThreads = internalThreads;
+        this.internalMinSpareThreads = internalMinSpareThreads;
+        this.internalQueueSize = internalQueueSize;
+        this.internalAcceptCount = internalAcceptCount;
+    }
+
+    @Override
+    public void customize(TomcatServletWebServerFactory factory)
+    {
+        factory.addConnectorCustomizers(connector -> connectors.put(PUBLIC, connector));
+        if(internalPort <= 0)
+        {
+            return;
+        }
+
+        TaskQueue queue = new TaskQueue(internalQueueSize);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(internalMinSpareThreads, internalThreads,
+                60, TimeUnit.SECONDS, queue,
+                new TaskThreadFactory("http-internal-exec-", true, Thread.NORM_PRIORITY));
+        queue.setParent(executor);
+        internalExecutor = executor;
+
+        Connector connector = new Connector(TomcatServletWebServerFactory.DEFAULT_PROTOCOL);
+        connector.setPort(internalPort);
+        connector.setProperty("acceptCount", String.valueOf(internalAcceptCount));
+        ((AbstractProtocol<?>) connector.getProtocolHandler()).setExecutor(executor);
+
+        factory.addAdditionalTomcatConnectors(connector);
+        connectors.put(INTERNAL, connector);
+    }
+
+    /**
+     * Полоса, в которую пришёл запрос.
+     * @param localPort Локальный порт соединения
+     * @return INTERNAL для порта внутреннего коннектора, иначе PUBLIC
+     */
+    public String laneOf(int localPort)
+    {
+        return internalPort > 0 && localPort == internalPort ? INTERNAL : PUBLIC;
+    }
+
+    /**
+     * Учёт обработанного запроса полосы.
+     * @param lane Полоса
+     * @param nanos Время обработки запроса
+     */
+    public void record(String lane, long nanos)
+    {
+        LaneCounters laneCounters = counters.get(lane);
+        laneCounters.requests.increment();
+        laneCounters.nanos.add(nanos);
+    }
+
+    /**
+     * Загрузка пулов потоков по полосам.
+     * @return Полоса -> занятые потоки, размер пула, максимум потоков, длина очереди, количество и среднее время запросов
+     */
+    public Map<String, Map<String, Object>> stats()
+    {
+        Map<String, Map<String, Object>> stats = new LinkedHashMap<>();
+        connectors.forEach((lane, connector) -> {
+            Map<String, Object> laneStats = new LinkedHashMap<>();
+            laneStats.put("port", connector.getLocalPort());
+
+            Executor executor = ((AbstractProtocol<?>) connector.getProtocolHandler()).getExecutor();
+            if(executor instanceof ThreadPoolExecutor pool)
+            {
+                laneStats.put("activeThreads", pool.getActiveCount());
+                laneStats.put("poolSize", pool.getPoolSize());
+                laneStats.put("maxThreads", pool.getMaximumPoolSize());
+                laneStats.put("queueSize", pool.getQueue().size());
+                laneStats.put("utilization", (double) pool.getActiveCount() / pool.getMaximumPoolSize());
+            }
+
+            LaneCounters laneCounters = counters.get(lane);
+            long requests = laneCounters.requests.sum();
+            laneStats.put("requests", requests);
+            laneStats.put("averageMillis", requests > 0 ? laneCounters.nanos.sum() / 1_000_000.0 / requests : 0.0);
+            stats.put(lane, laneStats);
+        });
+        return stats;
+    }
+
+    @Override
+    public void destroy()
+    {
+        if(internalExecutor != null)
+        {
+            internalExecutor.shutdown();
+        }
+    }
+
+    private static final class LaneCounters {
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+    }
+}
@@ -0,0 +1,61 @@
+package com.progress.account.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Отдельные пулы потоков для CPU-нагруженных операций
+
+@Configuration
+public class ExecutorConfig {
+
+    /**
+     * Пул для параллельной проверки пакетов токенов.
+     * При переполнении очереди задача выполняется в вызывающем потоке.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolExecutor tokenValidationExecutor(
+            @Value("${jwt.batch.threads:0}") int threads,
+            @Value("${jwt.batch.queue-size:256}") int queueSize)
+    {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        return new ThreadPoolExecutor(poolSize, poolSize,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                namedThreadFactory("token-validation-"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Пул для хеширования и проверки паролей BCrypt.
+     * Очередь ограничена, при её переполнении задача сразу отклоняется.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolExecutor passwordHashingExecutor(
+            @Value("${security.password.threads:0}") int threads,
+            @Value("${security.password.queue-size:64}") int queueSize)
+    {
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        return new ThreadPoolExecutor(poolSize, poolSize,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                namedThreadFactory("password-hashing-"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    private static ThreadFactory namedThreadFactory(String prefix)
+    {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
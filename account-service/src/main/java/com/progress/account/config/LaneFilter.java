@@ -0,0 +1,73 @@
+package com.progress.account.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.util.UrlPathHelper;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Определяет полосу запроса по локальному порту и учитывает время обработки.
+ * На внутреннем порту доступны только пути для вызовов других сервисов,
+ * чтобы пул внутренней полосы нельзя было занять публичными запросами.
+ * Пути только для сервисов (поток событий пользователей) наоборот недоступны на публичном порту.
+ * Пути сравниваются после декодирования, как их сопоставляют контроллеры: иначе /api/v1/auth/%65vents
+ * прошёл бы мимо фильтра. Доступ к путям только для сервисов дополнительно проверяет ServiceAuthorization.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class LaneFilter extends OncePerRequestFilter {
+    private static final List<String> INTERNAL_PATHS = List.of(
+            "/api/v1/auth/validate",
+            "/api/v1/auth/validate/batch",
+            "/api/v1/auth/user/{id}",
+            "/api/v1/auth/users/lookup",
+            "/api/v1/auth/.well-known/jwks.json",
+            "/api/v1/auth/events");
+    private static final List<String> INTERNAL_ONLY_PATHS = List.of(
+            "/api/v1/auth/events");
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final ConnectorLanes connectorLanes;
+
+    public LaneFilter(ConnectorLanes connectorLanes)
+    {
+        this.connectorLanes = connectorLanes;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain)
+    throws ServletException, IOException {
+
+        String lane = connectorLanes.laneOf(request.getLocalPort());
+        boolean internal = ConnectorLanes.INTERNAL.equals(lane);
+        String path = UrlPathHelper.defaultInstance.getPathWithinApplication(request);
+        if(internal ? !matches(INTERNAL_PATHS, path) : matches(INTERNAL_ONLY_PATHS, path))
+        {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            connectorLanes.record(lane, System.nanoTime() - start);
+        }
+    }
+
+    private boolean matches(List<String> patterns, String path)
+    {
+        return patterns.stream().anyMatch(pattern -> pathMatcher.match(pattern, path));
+    }
+}
@@ -1,12 +1,22 @@
 package com.progress.account.controller;
 
-import com.progress.account.dto.AuthResponse;
 import com.progress.account.dto.LoginRequest;
+import com.progress.account.dto.RefreshRequest;
 import com.progress.account.dto.RegisterRequest;
-import com.progress.account.model.User;
-import com.progress.account.repository.UserRepository;
-import com.progress.account.security.JwtUtil;
+import com.progress.account.dto.UserProfile;
+import com.progress.account.model.Role;
+import com.progress.account.security.JwtAuthFilter;
+import com.progress.account.security.TokenVerifier;
+import com.progress.account.security.TooManyAttemptsException;
+import com.progress.account.security.VerifiedToken;
 import com.progress.account.service.AuthService;
+import com.progress.account.service.SchoolMembershipService;
+import com.progress.account.service.ServiceOverloadedException;
+import com.progress.account.service.TokenBatchService;
+import com.progress.account.service.UserImportService;
+import com.progress.account.service.UserOutbox;
+import com.progress.account.service.UserProfileCache;
+import com.progress.account.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -14,13 +24,19 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -28,19 +44,80 @@ import java.util.Map;
 @Tag(name = "Аутентификация", description = "Операции регистрации, входа, получения и валидации пользователей")
 public class AuthController {
 
-    private final JwtUtil jwtUtil;
+    private final TokenVerifier tokenVerifier;
     private final AuthService authService;
-    private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
-
-    public AuthController(JwtUtil jwtUtil,
+    private final TokenBatchService tokenBatchService;
+    private final UserService userService;
+    private final UserProfileCache userProfileCache;
+    private final UserImportService userImportService;
+    private final SchoolMembershipService schoolMembershipService;
+    private final UserOutbox userOutbox;
+
+    public AuthController(TokenVerifier tokenVerifier,
                           AuthService authService,
-                          UserRepository userRepository,
-                          PasswordEncoder passwordEncoder) {
-        this.jwtUtil = jwtUtil;
+                          TokenBatchService tokenBatchService,
+                          UserService userService,
+                          UserProfileCache userProfileCache,
+                          UserImportService userImportService,
+                          SchoolMembershipService schoolMembershipService,
+                          UserOutbox userOutbox) {
+        this.userOutbox = userOutbox;
+        this.tokenVerifier = tokenVerifier;
         this.authService = authService;
-        this.userRepository = userRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.tokenBatchService = tokenBatchService;
+        this.userService = userService;
+        this.userProfileCache = userProfileCache;
+        this.userImportService = userImportService;
+        this.schoolMembershipService = schoolMembershipService;
+    }
+
+    /**
+     * Получение проверенного токена текущего запроса.
+     * Если токен уже проверен в JwtAuthFilter, повторный разбор не выполняется.
+     * @param request HTTP запрос
+     * @return Проверенный токен или null, если заголовок Authorization отсутствует
+     */
+    private VerifiedToken resolveToken(HttpServletRequest request)
+    {
+        Object attribute = request.getAttribute(JwtAuthFilter.VERIFIED_TOKEN_ATTRIBUTE);
+        if(attribute instanceof VerifiedToken verifiedToken)
+        {
+            return verifiedToken;
+        }
+
+        String header = request.getHeader("Authorization");
+        if(header == null)
+        {
+            return null;
+        }
+
+        String token = header.startsWith("Bearer ") ? header.substring(7) : header;
+        return tokenVerifier.verify(token);
+    }
+
+    // Проверка заголовка If-None-Match, который может содержать несколько ETag через запятую
+    private static boolean matchesETag(String ifNoneMatch, String etag)
+    {
+        if(ifNoneMatch == null)
+        {
+            return false;
+        }
+        for(String candidate : ifNoneMatch.split(","))
+        {
+            String value = candidate.trim();
+            if(value.equals("*") || value.equals(etag))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private ResponseEntity<String> overloaded(ServiceOverloadedException e)
+    {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(e.getMessage());
     }
 
     @PostMapping("/register")
@@ -48,13 +125,16 @@ public class AuthController {
     security = @SecurityRequirement(name = ""))
     @ApiResponses({
         @ApiResponse(responseCode = "200", description = "Пользователь зарегистрирован"),
-        @ApiResponse(responseCode = "400", description = "Ошибка валидации или пользователь уже существует")
+        @ApiResponse(responseCode = "400", description = "Ошибка валидации или пользователь уже существует"),
+        @ApiResponse(responseCode = "503", description = "Сервис перегружен")
     })
     public ResponseEntity<String> register(@RequestBody RegisterRequest request)
     {
         try {
             authService.register(request);
             return ResponseEntity.ok("Пользователь зарегистрирован");
+        } catch (ServiceOverloadedException e) {
+            return overloaded(e);
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
@@ -62,22 +142,44 @@ public class AuthController {
 
     @PostMapping("/login")
     @Operation(summary = "Вход пользователя",
-            description = "Возвращает JWT токен при успешной аутентификации",
+            description = "Возвращает JWT токен и refresh токен при успешной аутентификации",
             security = @SecurityRequirement(name = "bearerAuth"))
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Успешный вход"),
-            @ApiResponse(responseCode = "401", description = "Неверный пароль или пользователь не найден")
+            @ApiResponse(responseCode = "401", description = "Неверный пароль или пользователь не найден"),
+            @ApiResponse(responseCode = "429", description = "Слишком много попыток входа"),
+            @ApiResponse(responseCode = "503", description = "Сервис перегружен")
     })
-    public ResponseEntity<?> login(@RequestBody LoginRequest request)
+    public ResponseEntity<?> login(@RequestBody LoginRequest request, HttpServletRequest httpServletRequest)
     {
-        User user = userRepository.findByEmail(request.getEmail())
-                .orElseThrow(() -> new UsernameNotFoundException("Пользователь не найден"));
-        if(!passwordEncoder.matches(request.getPassword(), user.getPassword_hash()))
-        {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Неверный пароль");
+        try {
+            return ResponseEntity.ok(authService.login(request, httpServletRequest.getRemoteAddr()));
+        } catch (TooManyAttemptsException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(e.getMessage());
+        } catch (UsernameNotFoundException | BadCredentialsException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(e.getMessage());
+        } catch (ServiceOverloadedException e) {
+            return overloaded(e);
+        }
+    }
+
+    @PostMapping("/refresh")
+    @Operation(summary = "Обновление токена",
+            description = "Обменивает refresh токен на новый JWT токен и новый refresh токен без проверки пароля. " +
+                    "Каждый refresh токен действует один раз, повторное использование отзывает весь сеанс.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Токены обновлены"),
+            @ApiResponse(responseCode = "401", description = "Refresh токен невалиден, просрочен или уже использован")
+    })
+    public ResponseEntity<?> refresh(@RequestBody RefreshRequest request)
+    {
+        try {
+            return ResponseEntity.ok(authService.refresh(request.getRefreshToken()));
+        } catch (BadCredentialsException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(e.getMessage());
         }
-        String token = jwtUtil.generateToken(user.getId(), user.getEmail(), user.getRole());
-        return ResponseEntity.ok(new AuthResponse(token));
     }
 
     @GetMapping("/user")
@@ -97,17 +199,17 @@ public class AuthController {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Отсутствует токен");
             }
 
-            String token = header.substring(7);
+            VerifiedToken verifiedToken = resolveToken(httpServletRequest);
 
-            if(jwtUtil.isTokenExpired(token))
+            if(verifiedToken.isExpired())
             {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Токен истек");
             }
 
             Map<String, Object> userInfo = new HashMap<>();
-            userInfo.put("id", jwtUtil.extractId(token));
-            userInfo.put("email", jwtUtil.extractEmail(token));
-            userInfo.put("role", jwtUtil.extractRole(token));
+            userInfo.put("id", verifiedToken.getId());
+            userInfo.put("email", verifiedToken.getEmail());
+            userInfo.put("role", verifiedToken.getRole());
 
             return ResponseEntity.ok(userInfo);
 
@@ -124,36 +226,72 @@ public class AuthController {
             @ApiResponse(responseCode = "200", description = "Токен валиден"),
             @ApiResponse(responseCode = "401", description = "Токен невалиден или истёк")
     })
-    public ResponseEntity<?> validateToken(@RequestHeader("Authorization") String header)
+    public ResponseEntity<?> validateToken(@RequestHeader("Authorization") String header,
+                                           HttpServletRequest httpServletRequest)
     {
         if(header == null)
         {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Отсутствует токен");
         }
 
-        String token = header.startsWith("Bearer ") ? header.substring(7) : header;
-
         try {
-            if(jwtUtil.isTokenExpired(token))
+            VerifiedToken verifiedToken = resolveToken(httpServletRequest);
+
+            if(verifiedToken.isExpired())
             {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Токен истек");
             }
 
-            Long id = jwtUtil.extractId(token);
-            String email = jwtUtil.extractEmail(token);
-            String role = jwtUtil.extractRole(token);
-
             Map<String, Object> response = new HashMap<>();
             response.put("valid", true);
-            response.put("id", id);
-            response.put("email", email);
-            response.put("role", role);
+            response.put("id", verifiedToken.getId());
+            response.put("email", verifiedToken.getEmail());
+            response.put("role", verifiedToken.getRole());
+
+            List<Long> schools = schoolMembershipService.currentSchools(verifiedToken);
+            if(schools != null)
+            {
+                response.put("schools", schools);
+            }
             return ResponseEntity.ok(response);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Невалидный токен");
         }
     }
 
+    @PostMapping(value = "/validate/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Пакетная проверка токенов",
+            description = "Принимает JSON массив токенов и возвращает результат для каждого токена в том же порядке",
+            security = @SecurityRequirement(name = ""))
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Токены проверены"),
+            @ApiResponse(responseCode = "400", description = "Превышен размер пакета")
+    })
+    public ResponseEntity<?> validateTokens(@RequestBody List<String> tokens)
+    {
+        try {
+            return ResponseEntity.ok(tokenBatchService.validateAll(tokens));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @PostMapping(value = "/validate/batch", consumes = MediaType.TEXT_PLAIN_VALUE)
+    @Operation(summary = "Пакетная проверка токенов в текстовом формате",
+            description = "Принимает токены по одному на строку и возвращает результат для каждого токена в том же порядке",
+            security = @SecurityRequirement(name = ""))
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Токены проверены"),
+            @ApiResponse(responseCode = "400", description = "Превышен размер пакета")
+    })
+    public ResponseEntity<?> validateTokensPlain(@RequestBody String body)
+    {
+        List<String> tokens = Arrays.stream(body.split("\\R"))
+                .filter(line -> !line.isBlank())
+                .toList();
+        return validateTokens(tokens);
+    }
+
     @PutMapping("/user")
     @Operation(summary = "Обновление данных пользователя",
                security = @SecurityRequirement(name = "bearerAuth"))
@@ -171,21 +309,47 @@ public class AuthController {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Отсутствует токен");
             }
 
-            String token = header.substring(7);
+            VerifiedToken verifiedToken = resolveToken(httpServletRequest);
 
-            if(jwtUtil.isTokenExpired(token))
+            if(verifiedToken.isExpired())
             {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Токен истек");
             }
 
-            authService.updateUser(token, request);
+            authService.updateUser(verifiedToken.getId(), request);
             return ResponseEntity.ok("Информация обновлена");
 
+        } catch (ServiceOverloadedException e) {
+            return overloaded(e);
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
     }
 
+    @PostMapping("/logout")
+    @Operation(summary = "Выход",
+               description = "Отзывает текущий токен и переданный refresh токен. " +
+                       "С параметром all=true отзывает все токены пользователя.",
+               security = @SecurityRequirement(name = "bearerAuth"))
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Токен отозван"),
+            @ApiResponse(responseCode = "401", description = "Нет токена или истёк")
+    })
+    public ResponseEntity<?> logout(@Parameter(description = "Отозвать все токены пользователя")
+                                    @RequestParam(name = "all", defaultValue = "false") boolean all,
+                                    @RequestBody(required = false) RefreshRequest request,
+                                    HttpServletRequest httpServletRequest)
+    {
+        VerifiedToken verifiedToken = resolveToken(httpServletRequest);
+        if(verifiedToken == null || verifiedToken.isExpired())
+        {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Невалидный или отсутствующий токен");
+        }
+
+        authService.logout(verifiedToken, request != null ? request.getRefreshToken() : null, all);
+        return ResponseEntity.ok("Токен отозван");
+    }
+
     @DeleteMapping("/user")
     @Operation(summary = "Удаление пользователя",
                description = "Удаляет пользователя. Доступно только администраторам.",
@@ -205,17 +369,12 @@ public class AuthController {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Отсутствует токен");
             }
 
-            String token = header.substring(7);
-
-            if(jwtUtil.isTokenExpired(token))
+            if(resolveToken(httpServletRequest).isExpired())
             {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Токен истек");
             }
 
-            User user = userRepository.findById(id)
-                    .orElseThrow(() -> new UsernameNotFoundException("Пользователь не найден"));
-
-            userRepository.delete(user);
+            authService.deleteUser(id);
             return ResponseEntity.ok("Пользователь удален");
         } catch (Exception e)
         {
@@ -224,15 +383,20 @@ public class AuthController {
     }
 
     @GetMapping("/users")
-    @Operation(summary = "Получение списка всех пользователей",
-               description = "Возвращает информацию о пользователях. Доступно только администраторам.",
+    @Operation(summary = "Получение списка пользователей",
+               description = "Возвращает страницу пользователей, упорядоченных по ID. " +
+                       "Для следующей страницы передайте nextCursor из ответа. Доступно только администраторам.",
                security = @SecurityRequirement(name = "bearerAuth"))
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Список пользователей получен"),
             @ApiResponse(responseCode = "401", description = "Нет токена или истёк"),
             @ApiResponse(responseCode = "403", description = "Доступ запрещён"),
     })
-    public ResponseEntity<?> getAllUsers(HttpServletRequest httpServletRequest)
+    public ResponseEntity<?> getAllUsers(@Parameter(description = "ID последнего пользователя предыдущей страницы")
+                                             @RequestParam(name = "cursor", defaultValue = "0") long cursor,
+                                         @Parameter(description = "Размер страницы")
+                                             @RequestParam(name = "limit", defaultValue = "100") int limit,
+                                         HttpServletRequest httpServletRequest)
     {
         String header = httpServletRequest.getHeader("Authorization");
             if(header == null || !header.startsWith("Bearer "))
@@ -240,21 +404,114 @@ public class AuthController {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Отсутствует токен");
             }
 
-            if(jwtUtil.isTokenExpired(header.substring(7)))
+            if(resolveToken(httpServletRequest).isExpired())
             {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Токен истек");
             }
 
-        return ResponseEntity.ok(userRepository.findAll());
+        return ResponseEntity.ok(userService.page(cursor, limit));
+    }
+
+    @GetMapping("/users/search")
+    @Operation(summary = "Поиск пользователей",
+               description = "Ищет пользователей по подстроке в email, имени или фамилии без учёта регистра. " +
+                       "Строка короче трёх символов ищется как префикс. Результаты упорядочены по ID, " +
+                       "для следующей страницы передайте nextCursor из ответа. Доступно только администраторам.",
+               security = @SecurityRequirement(name = "bearerAuth"))
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Поиск выполнен"),
+            @ApiResponse(responseCode = "400", description = "Пустая строка поиска"),
+            @ApiResponse(responseCode = "401", description = "Нет токена или истёк"),
+            @ApiResponse(responseCode = "403", description = "Доступ запрещён"),
+    })
+    public ResponseEntity<?> searchUsers(@Parameter(description = "Строка поиска")
+                                             @RequestParam(name = "q") String query,
+                                         @Parameter(description = "Роль пользователя")
+                                             @RequestParam(name = "role", required = false) Role role,
+                                         @Parameter(description = "ID последнего пользователя предыдущей страницы")
+                                             @RequestParam(name = "cursor", defaultValue = "0") long cursor,
+                                         @Parameter(description = "Размер страницы")
+                                             @RequestParam(name = "limit", defaultValue = "50") int limit)
+    {
+        try {
+            return ResponseEntity.ok(userService.search(query, role, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping(value = "/users/export", produces = "application/x-ndjson")
+    @Operation(summary = "Потоковая выгрузка всех пользователей",
+               description = "Возвращает всех пользователей в формате NDJSON, по одному на строку. " +
+                       "Доступно только администраторам.",
+               security = @SecurityRequirement(name = "bearerAuth"))
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Выгрузка начата"),
+            @ApiResponse(responseCode = "401", description = "Нет токена или истёк"),
+            @ApiResponse(responseCode = "403", description = "Доступ запрещён"),
+    })
+    public ResponseEntity<StreamingResponseBody> exportUsers()
+    {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(userService::export);
+    }
+
+    @PostMapping(value = "/users/import", consumes = {"text/csv", "application/x-ndjson"})
+    @Operation(summary = "Массовый импорт пользователей",
+               description = "Принимает CSV с заголовком " + UserImportService.CSV_HEADER + " или NDJSON " +
+                       "с объектами регистрации. Возвращает количество созданных пользователей и ошибки по строкам. " +
+                       "Доступно только администраторам.",
+               security = @SecurityRequirement(name = "bearerAuth"))
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Импорт завершён, ошибки строк в отчёте"),
+            @ApiResponse(responseCode = "400", description = "Некорректный заголовок CSV"),
+            @ApiResponse(responseCode = "401", description = "Нет токена или истёк"),
+            @ApiResponse(responseCode = "403", description = "Доступ запрещён"),
+            @ApiResponse(responseCode = "503", description = "Сервис перегружен")
+    })
+    public ResponseEntity<?> importUsers(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                         HttpServletRequest httpServletRequest) throws IOException
+    {
+        UserImportService.Format format = MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.parseMediaType("text/csv"))
+                ? UserImportService.Format.CSV
+                : UserImportService.Format.NDJSON;
+
+        try {
+            return ResponseEntity.ok(userImportService.importUsers(httpServletRequest.getInputStream(), format));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (ServiceOverloadedException e) {
+            return overloaded(e);
+        }
+    }
+
+    @GetMapping("/events")
+    @Operation(
+            summary = "Поток событий изменения пользователей",
+            description = "Возвращает события из user_outbox с id больше after по возрастанию id. " +
+                    "Доступно только на внутреннем порту для других сервисов.",
+            security = @SecurityRequirement(name = ""))
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "События получены")
+    })
+    public ResponseEntity<?> getUserEvents(@Parameter(description = "ID последнего обработанного события")
+                                               @RequestParam(name = "after", defaultValue = "0") long after,
+                                           @Parameter(description = "Размер страницы")
+                                               @RequestParam(name = "limit", defaultValue = "500") int limit)
+    {
+        return ResponseEntity.ok(userOutbox.after(after, limit));
     }
 
     @GetMapping("/user/{id}")
     @Operation(
             summary = "Получение пользователя по ID",
-            description = "Возвращает информацию о пользователе по ID. Доступно только администраторам.",
+            description = "Возвращает информацию о пользователе по ID. Ответ содержит ETag, " +
+                    "при совпадении If-None-Match возвращается 304. Доступно только администраторам.",
             security = @SecurityRequirement(name = "bearerAuth"))
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Пользователь найден"),
+            @ApiResponse(responseCode = "304", description = "Данные пользователя не изменились"),
             @ApiResponse(responseCode = "401", description = "Отсутствует токен или токен истёк"),
             @ApiResponse(responseCode = "403", description = "Доступ запрещён — требуется роль ADMIN"),
             @ApiResponse(responseCode = "404", description = "Пользователь с указанным ID не найден")
@@ -270,26 +527,60 @@ public class AuthController {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Отсутствует токен");
             }
 
-            if(jwtUtil.isTokenExpired(header.substring(7)))
+            if(resolveToken(httpServletRequest).isExpired())
             {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Токен истек");
             }
 
-        User user = userRepository.findById(id)
-                .orElse(null);
+        UserProfile profile = userProfileCache.get(id);
 
-        if (user == null)
+        if (profile == null)
         {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Пользователь не найден");
         }
 
-        Map<String, Object> userInfo = new HashMap<>();
-        userInfo.put("id", id);
-        userInfo.put("email", user.getEmail());
-        userInfo.put("firstName", user.getFirst_name());
-        userInfo.put("lastName", user.getLast_name());
-        userInfo.put("role", user.getRole());
+        if (matchesETag(httpServletRequest.getHeader(HttpHeaders.IF_NONE_MATCH), profile.getEtag()))
+        {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(profile.getEtag()).build();
+        }
+
+        return ResponseEntity.ok().eTag(profile.getEtag()).body(profile);
+    }
+
+    @GetMapping("/users/lookup")
+    @Operation(
+            summary = "Получение пользователей по списку ID",
+            description = "Возвращает id, email, имя, фамилию и роль пользователей одним запросом. Доступно только администраторам.",
+            security = @SecurityRequirement(name = "bearerAuth"))
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Пользователи найдены"),
+            @ApiResponse(responseCode = "400", description = "Превышено количество ID"),
+            @ApiResponse(responseCode = "401", description = "Отсутствует токен или токен истёк"),
+            @ApiResponse(responseCode = "403", description = "Доступ запрещён — требуется роль ADMIN")
+    })
+    public ResponseEntity<?> lookupUsers(@Parameter(description = "ID пользователей через запятую")
+                                             @RequestParam(name = "ids") List<Long> ids)
+    {
+        try {
+            return ResponseEntity.ok(userService.lookup(ids));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
 
-        return ResponseEntity.ok(userInfo);
+    @PostMapping("/users/lookup")
+    @Operation(
+            summary = "Получение пользователей по большому списку ID",
+            description = "То же, что и GET /users/lookup, но список ID передаётся в теле запроса. Доступно только администраторам.",
+            security = @SecurityRequirement(name = "bearerAuth"))
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Пользователи найдены"),
+            @ApiResponse(responseCode = "400", description = "Превышено количество ID"),
+            @ApiResponse(responseCode = "401", description = "Отсутствует токен или токен истёк"),
+            @ApiResponse(responseCode = "403", description = "Доступ запрещён — требуется роль ADMIN")
+    })
+    public ResponseEntity<?> lookupUsersBody(@RequestBody List<Long> ids)
+    {
+        return lookupUsers(ids);
     }
 }
@@ -0,0 +1,48 @@
+package com.progress.account.controller;
+
+import com.progress.account.security.JwtKeyStore;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+
+@RestController
+@RequestMapping("/api/v1/auth")
+@Tag(name = "Ключи", description = "Публичные ключи для локальной проверки JWT")
+public class JwksController {
+
+    private final JwtKeyStore keyStore;
+    private final Duration maxAge;
+
+    public JwksController(JwtKeyStore keyStore,
+                          @Value("${jwt.jwks.max-age:PT5M}") Duration maxAge)
+    {
+        this.keyStore = keyStore;
+        this.maxAge = maxAge;
+    }
+
+    @GetMapping(value = "/.well-known/jwks.json", produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Получение публичных ключей (JWKS)",
+            description = "Возвращает ключи, которыми подписаны действующие токены. " +
+                    "Токен содержит kid ключа в заголовке. Ответ можно кешировать.",
+            security = @SecurityRequirement(name = ""))
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Ключи получены")
+    })
+    public ResponseEntity<String> getJwks()
+    {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(maxAge).cachePublic())
+                .body(keyStore.jwksJson());
+    }
+}
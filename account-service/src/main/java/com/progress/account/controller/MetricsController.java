@@ -0,0 +1,70 @@
+package com.progress.account.controller;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.progress.account.config.ConnectorLanes;
+import com.progress.account.security.TokenVerifier;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/v1/auth/metrics")
+@Tag(name = "Метрики", description = "Внутренние счётчики сервиса авторизации")
+public class MetricsController {
+
+    private final TokenVerifier tokenVerifier;
+    private final ConnectorLanes connectorLanes;
+
+    public MetricsController(TokenVerifier tokenVerifier,
+                             ConnectorLanes connectorLanes)
+    {
+        this.tokenVerifier = tokenVerifier;
+        this.connectorLanes = connectorLanes;
+    }
+
+    @GetMapping("/token-cache")
+    @Operation(summary = "Статистика кеша проверенных токенов",
+            description = "Возвращает количество попаданий, промахов и вытеснений. Доступно только администраторам.",
+            security = @SecurityRequirement(name = "bearerAuth"))
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Статистика получена"),
+            @ApiResponse(responseCode = "401", description = "Нет токена или истёк"),
+            @ApiResponse(responseCode = "403", description = "Доступ запрещён")
+    })
+    public ResponseEntity<?> getTokenCacheStats()
+    {
+        CacheStats stats = tokenVerifier.stats();
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("size", tokenVerifier.size());
+        response.put("hits", stats.hitCount());
+        response.put("misses", stats.missCount());
+        response.put("evictions", stats.evictionCount());
+        response.put("hitRate", stats.hitRate());
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/lanes")
+    @Operation(summary = "Загрузка публичной и внутренней полосы",
+            description = "Возвращает занятые потоки, длину очереди, количество и среднее время запросов " +
+                    "для каждого коннектора. Доступно только администраторам.",
+            security = @SecurityRequirement(name = "bearerAuth"))
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Статистика получена"),
+            @ApiResponse(responseCode = "401", description = "Нет токена или истёк"),
+            @ApiResponse(responseCode = "403", description = "Доступ запрещён")
+    })
+    public ResponseEntity<?> getLaneStats()
+    {
+        return ResponseEntity.ok(connectorLanes.stats());
+    }
+}
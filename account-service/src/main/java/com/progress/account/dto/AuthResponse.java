@@ -2,12 +2,18 @@ package com.progress.account.dto;
 
 public class AuthResponse {
     private String token;
+    private String refreshToken;
 
-    public AuthResponse(String token) {
+    public AuthResponse(String token, String refreshToken) {
         this.token = token;
+        this.refreshToken = refreshToken;
     }
 
     public void setToken(String token) { this.token = token; }
 
     public String getToken() { return token; }
+
+    public void setRefreshToken(String refreshToken) { this.refreshToken = refreshToken; }
+
+    public String getRefreshToken() { return refreshToken; }
 }
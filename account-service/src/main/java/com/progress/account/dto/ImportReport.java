@@ -0,0 +1,24 @@
+package com.progress.account.dto;
+
+import java.util.List;
+
+public class ImportReport {
+    private final int imported;
+    private final int failed;
+    private final List<RowError> errors;
+
+    public ImportReport(int imported, List<RowError> errors) {
+        this.imported = imported;
+        this.failed = errors.size();
+        this.errors = errors;
+    }
+
+    public int getImported() { return imported; }
+
+    public int getFailed() { return failed; }
+
+    public List<RowError> getErrors() { return errors; }
+
+    // Строка входного файла (с единицы, считая заголовок CSV), которую не удалось импортировать
+    public record RowError(long line, String email, String error) {}
+}
@@ -0,0 +1,46 @@
+package com.progress.account.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+// Пустые поля не сериализуются, чтобы ответ на пакет токенов оставался компактным
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TokenValidationResult {
+    private final boolean valid;
+    private final Long id;
+    private final String email;
+    private final String role;
+    private final List<Long> schools;
+    private final String error;
+
+    private TokenValidationResult(boolean valid, Long id, String email, String role, List<Long> schools, String error) {
+        this.valid = valid;
+        this.id = id;
+        this.email = email;
+        this.role = role;
+        this.schools = schools;
+        this.error = error;
+    }
+
+    public static TokenValidationResult valid(Long id, String email, String role, List<Long> schools) {
+        return new TokenValidationResult(true, id, email, role, schools, null);
+    }
+
+    public static TokenValidationResult invalid(String error) {
+        return new TokenValidationResult(false, null, null, null, null, error);
+    }
+
+    public boolean isValid() { return valid; }
+
+    public Long getId() { return id; }
+
+    public String getEmail() { return email; }
+
+    public String getRole() { return role; }
+
+    // Школы пользователя из токена, только если членство не менялось после выдачи токена
+    public List<Long> getSchools() { return schools; }
+
+    public String getError() { return error; }
+}
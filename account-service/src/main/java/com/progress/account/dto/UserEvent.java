@@ -0,0 +1,8 @@
+package com.progress.account.dto;
+
+// Событие изменения пользователя из user_outbox. Для DELETED заполнены только id, type и userId
+public record UserEvent(long id, String type, Long userId, String email,
+                        String firstName, String lastName, String role) {
+    public static final String UPSERTED = "UPSERTED";
+    public static final String DELETED = "DELETED";
+}
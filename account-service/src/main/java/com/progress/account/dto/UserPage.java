@@ -0,0 +1,18 @@
+package com.progress.account.dto;
+
+import java.util.List;
+
+public class UserPage {
+    private final List<UserSummary> users;
+    private final Long nextCursor;
+
+    public UserPage(List<UserSummary> users, Long nextCursor) {
+        this.users = users;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<UserSummary> getUsers() { return users; }
+
+    // ID последнего пользователя на странице или null, если страница последняя
+    public Long getNextCursor() { return nextCursor; }
+}
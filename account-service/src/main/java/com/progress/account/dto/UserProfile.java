@@ -0,0 +1,49 @@
+package com.progress.account.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.progress.account.model.Role;
+import com.progress.account.model.User;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+public class UserProfile {
+    private final Long id;
+    private final String email;
+    private final String firstName;
+    private final String lastName;
+    private final Role role;
+    private final String etag;
+
+    public UserProfile(Long id, String email, String firstName, String lastName, Role role, String etag) {
+        this.id = id;
+        this.email = email;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.role = role;
+        this.etag = etag;
+    }
+
+    /**
+     * Создание профиля из пользователя. ETag строится из ID и времени последнего изменения.
+     */
+    public static UserProfile of(User user) {
+        LocalDateTime updatedAt = user.getUpdated_at();
+        long version = updatedAt != null ? updatedAt.toInstant(ZoneOffset.UTC).toEpochMilli() : 0;
+        String etag = "\"" + user.getId() + "-" + version + "\"";
+        return new UserProfile(user.getId(), user.getEmail(), user.getFirst_name(), user.getLast_name(), user.getRole(), etag);
+    }
+
+    public Long getId() { return id; }
+
+    public String getEmail() { return email; }
+
+    public String getFirstName() { return firstName; }
+
+    public String getLastName() { return lastName; }
+
+    public Role getRole() { return role; }
+
+    @JsonIgnore
+    public String getEtag() { return etag; }
+}
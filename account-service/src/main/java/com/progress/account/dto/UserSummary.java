@@ -0,0 +1,11 @@
+package com.progress.account.dto;
+
+import com.progress.account.model.Role;
+
+public interface UserSummary {
+    Long getId();
+    String getEmail();
+    String getFirstName();
+    String getLastName();
+    Role getRole();
+}
@@ -1,5 +1,6 @@
 package com.progress.account.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
@@ -13,6 +14,7 @@ public class User {
     @Column(nullable = false)
     private String email;
 
+    @JsonIgnore
     @Column(name = "password_hash", nullable = false)
     private String password_hash;
 
@@ -48,6 +50,8 @@ public class User {
     public Role getRole() { return role; }
     public void setRole(Role role) { this.role = role; }
 
+    public LocalDateTime getUpdated_at() { return updated_at; }
+
     @PrePersist
     protected void onCreate() {
         created_at = LocalDateTime.now();
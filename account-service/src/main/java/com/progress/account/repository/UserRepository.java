@@ -1,15 +1,50 @@
 package com.progress.account.repository;
 
+import com.progress.account.dto.UserSummary;
 import com.progress.account.model.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long>{
     Optional<User> findById(Long id);
-    boolean existsByEmail(String email);
     Optional<User> findByEmail(String email);
-    
+
+    // Использует уникальный индекс ux_users_email_lower
+    @Query("SELECT u FROM User u WHERE lower(u.email) = lower(:email)")
+    Optional<User> findByEmailIgnoreCase(@Param("email") String email);
+
+    @Query("SELECT u.id AS id, u.email AS email, u.first_name AS firstName, u.last_name AS lastName, u.role AS role " +
+            "FROM User u WHERE u.id IN :ids")
+    List<UserSummary> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT u.id AS id, u.email AS email, u.first_name AS firstName, u.last_name AS lastName, u.role AS role " +
+            "FROM User u WHERE u.id > :cursor ORDER BY u.id")
+    List<UserSummary> findPageAfter(@Param("cursor") Long cursor, Pageable pageable);
+
+    // Подстрока в email, имени или фамилии, использует триграммные индексы ix_users_*_trgm
+    @Query(value = "SELECT id AS \"id\", email AS \"email\", first_name AS \"firstName\", " +
+            "last_name AS \"lastName\", role AS \"role\" FROM users " +
+            "WHERE (lower(email) LIKE :pattern OR lower(first_name) LIKE :pattern OR lower(last_name) LIKE :pattern) " +
+            "AND (CAST(:role AS varchar) IS NULL OR role = CAST(:role AS varchar)) AND id > :cursor ORDER BY id",
+            nativeQuery = true)
+    List<UserSummary> searchAfter(@Param("pattern") String pattern,
+                                  @Param("role") String role,
+                                  @Param("cursor") Long cursor,
+                                  Pageable pageable);
+
+    // Хеш заменяется только если его не успели изменить параллельно
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.password_hash = :newHash WHERE u.id = :id AND u.password_hash = :oldHash")
+    int replacePasswordHash(@Param("id") Long id, @Param("oldHash") String oldHash, @Param("newHash") String newHash);
 }
@@ -0,0 +1,47 @@
+package com.progress.account.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+
+/**
+ * Подбор стоимости BCrypt под текущую машину.
+ * Каждое увеличение стоимости на единицу удваивает время хеширования,
+ * поэтому достаточно измерить время на минимальной стоимости.
+ */
+public final class BCryptCalibration {
+    private static final Logger log = LoggerFactory.getLogger(BCryptCalibration.class);
+
+    private static final String SAMPLE_PASSWORD = "calibration-sample-password";
+
+    private BCryptCalibration() {}
+
+    /**
+     * Подбор стоимости, при которой хеширование занимает не больше целевого времени.
+     * @param targetMillis Целевое время одного хеширования в миллисекундах
+     * @param minStrength Минимально допустимая стоимость
+     * @param maxStrength Максимально допустимая стоимость
+     * @return Стоимость BCrypt в диапазоне [minStrength, maxStrength]
+     */
+    public static int calibrate(long targetMillis, int minStrength, int maxStrength)
+    {
+        // Первый прогон прогревает JIT и не учитывается
+        BCrypt.hashpw(SAMPLE_PASSWORD, BCrypt.gensalt(minStrength));
+
+        long start = System.nanoTime();
+        BCrypt.hashpw(SAMPLE_PASSWORD, BCrypt.gensalt(minStrength));
+        double measuredMillis = Math.max(1.0, (System.nanoTime() - start) / 1_000_000.0);
+
+        int strength = minStrength;
+        double expectedMillis = measuredMillis;
+        while(strength < maxStrength && expectedMillis * 2 <= targetMillis)
+        {
+            strength++;
+            expectedMillis *= 2;
+        }
+
+        log.info("BCrypt calibrated: strength={} (~{} ms per hash, target {} ms)",
+                strength, Math.round(expectedMillis), targetMillis);
+        return strength;
+    }
+}
@@ -0,0 +1,84 @@
+package com.progress.account.security;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Фильтр Блума для строковых ключей.
+ * Отвечает "точно нет" или "возможно да"; доля ложноположительных ответов задаётся при создании.
+ * Добавление и проверка потокобезопасны и выполняются без блокировок.
+ * Удаление не поддерживается, устаревшие ключи убираются пересозданием фильтра.
+ */
+public class BloomFilter {
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+
+    /**
+     * @param expectedInsertions Ожидаемое количество ключей
+     * @param falsePositiveRate Допустимая доля ложноположительных ответов, например 0.01
+     */
+    public BloomFilter(long expectedInsertions, double falsePositiveRate)
+    {
+        long n = Math.max(1, expectedInsertions);
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.min(Integer.MAX_VALUE, (m + 63) / 64);
+
+        this.bits = new AtomicLongArray(words);
+        this.bitCount = (long) words * 64;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+    }
+
+    public void put(String key)
+    {
+        long hash1 = hash(key);
+        long hash2 = mix(hash1) | 1;
+        for(int i = 0; i < hashCount; i++)
+        {
+            long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+
+            long current;
+            while(((current = bits.get(word)) & mask) == 0 && !bits.compareAndSet(word, current, current | mask))
+            {
+                // повторяем, если другой поток изменил слово
+            }
+        }
+    }
+
+    public boolean mightContain(String key)
+    {
+        long hash1 = hash(key);
+        long hash2 = mix(hash1) | 1;
+        for(int i = 0; i < hashCount; i++)
+        {
+            long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+            if((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // FNV-1a, 64 бита
+    private static long hash(String key)
+    {
+        long hash = 0xcbf29ce484222325L;
+        for(byte b : key.getBytes(StandardCharsets.UTF_8))
+        {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    // Финализатор SplitMix64, перемешивает биты хеша
+    private static long mix(long z)
+    {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
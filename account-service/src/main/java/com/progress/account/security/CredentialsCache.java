@@ -0,0 +1,67 @@
+package com.progress.account.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.progress.account.model.Role;
+import com.progress.account.model.User;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Кеш данных для входа: email -> (id, email, хеш пароля, роль).
+ * Частые входы обходятся без запроса к БД. Отсутствующие пользователи не кешируются.
+ * Записи сбрасываются при изменении и удалении пользователя.
+ */
+@Component
+public class CredentialsCache {
+    private final Cache<String, Credentials> cache;
+
+    public CredentialsCache(@Value("${users.credentials-cache.max-size:10000}") long maxSize,
+                            @Value("${users.credentials-cache.ttl:PT10M}") Duration ttl)
+    {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * Получение данных для входа из кеша или через загрузчик.
+     * @param email Email пользователя
+     * @param loader Загрузка пользователя из БД по email
+     * @return Данные для входа или пустой Optional, если пользователь не найден
+     */
+    public Optional<Credentials> get(String email, Function<String, Optional<User>> loader)
+    {
+        return Optional.ofNullable(cache.get(normalize(email),
+                key -> loader.apply(email).map(Credentials::of).orElse(null)));
+    }
+
+    /**
+     * Сброс записи по email.
+     * @param email Email пользователя
+     */
+    public void invalidate(String email)
+    {
+        if(email != null)
+        {
+            cache.invalidate(normalize(email));
+        }
+    }
+
+    private static String normalize(String email)
+    {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    public record Credentials(Long id, String email, String passwordHash, Role role) {
+        static Credentials of(User user) {
+            return new Credentials(user.getId(), user.getEmail(), user.getPassword_hash(), user.getRole());
+        }
+    }
+}
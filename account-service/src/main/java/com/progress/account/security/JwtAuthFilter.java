@@ -20,14 +20,17 @@ import java.util.List;
  * JWT фильтр, который проверяет авторизацию пользователя на каждом HTTP-запросе.
  * Если в заголовке Authorization есть валидный JWT токен, извлекает из него email и роль,
  * и вручную устанавливает аутентификацию в SecurityContext.
+ * Проверенный токен сохраняется в атрибуте запроса, чтобы контроллер не разбирал его повторно.
  */
 public class JwtAuthFilter extends OncePerRequestFilter {
-    private final JwtUtil jwtUtil;
+    public static final String VERIFIED_TOKEN_ATTRIBUTE = VerifiedToken.class.getName();
 
+    private final TokenVerifier tokenVerifier;
 
-    public JwtAuthFilter(JwtUtil jwtUtil)
+
+    public JwtAuthFilter(TokenVerifier tokenVerifier)
     {
-        this.jwtUtil = jwtUtil;
+        this.tokenVerifier = tokenVerifier;
     }
 
     @Override
@@ -45,10 +48,11 @@ public class JwtAuthFilter extends OncePerRequestFilter {
 
             try {
 
-                if (!jwtUtil.isTokenExpired(token)) {
-                    String email = jwtUtil.extractEmail(token);
-                    String roleStr = jwtUtil.extractRole(token);
-                    Role role = Role.valueOf(roleStr);
+                VerifiedToken verifiedToken = tokenVerifier.verify(token);
+
+                if (!verifiedToken.isExpired()) {
+                    String email = verifiedToken.getEmail();
+                    Role role = Role.valueOf(verifiedToken.getRole());
 
                     // Создаем список прав на основе роли
                     List<GrantedAuthority> authorities =
@@ -60,6 +64,7 @@ public class JwtAuthFilter extends OncePerRequestFilter {
 
                     // Устанавливаем аутентификацию в контекст безопасности
                     SecurityContextHolder.getContext().setAuthentication(auth);
+                    request.setAttribute(VERIFIED_TOKEN_ATTRIBUTE, verifiedToken);
                 }
             } catch (Exception e) {
                     response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
@@ -0,0 +1,202 @@
+package com.progress.account.security;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Jwks;
+import io.jsonwebtoken.security.PublicJwk;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Хранилище ключей ES256 для подписи JWT.
+ * Подписывает всегда один активный ключ, остальные ключи используются только для проверки,
+ * чтобы токены, выданные до смены ключа, продолжали проходить проверку.
+ * Идентификатор ключа (kid) - отпечаток публичного JWK (RFC 7638).
+ *
+ * Если ключи заданы в конфигурации, смена ключа выполняется через конфигурацию:
+ * новый ключ становится активным, а публичный ключ старого переносится в jwt.signing.previous-public-keys.
+ * Сгенерированный при старте ключ с автоматической сменой по расписанию допустим только для локальной
+ * разработки и включается явно через jwt.signing.allow-generated: такой ключ свой у каждого процесса,
+ * поэтому токены перестают проходить проверку после перезапуска и на других экземплярах сервиса.
+ */
+@Component
+public class JwtKeyStore {
+    private static final Logger log = LoggerFactory.getLogger(JwtKeyStore.class);
+
+    private final boolean generated;
+    private final Duration retention;
+
+    private volatile SigningKey activeKey;
+    // kid -> ключ проверки, включая активный
+    private volatile Map<String, VerificationKey> verificationKeys;
+    private volatile String jwksJson;
+
+    public JwtKeyStore(@Value("${jwt.signing.private-key:}") String privateKey,
+                       @Value("${jwt.signing.public-key:}") String publicKey,
+                       @Value("${jwt.signing.previous-public-keys:}") List<String> previousPublicKeys,
+                       @Value("${jwt.signing.allow-generated:false}") boolean allowGenerated,
+                       @Value("${jwt.rotation.retention:PT2H}") Duration retention)
+    {
+        this.retention = retention;
+        this.generated = privateKey.isBlank();
+
+        Map<String, VerificationKey> keys = new LinkedHashMap<>();
+        if(generated)
+        {
+            if(!allowGenerated)
+            {
+                throw new IllegalStateException("Не задан ключ подписи JWT: укажите jwt.signing.private-key и jwt.signing.public-key "
+                        + "(JWT_PRIVATE_KEY, JWT_PUBLIC_KEY) или включите jwt.signing.allow-generated для локальной разработки");
+            }
+            log.warn("jwt.signing.private-key is not set, using a generated key with scheduled rotation (development only)");
+            this.activeKey = SigningKey.of(Jwts.SIG.ES256.keyPair().build());
+        }
+        else
+        {
+            this.activeKey = SigningKey.of(new KeyPair(decodePublicKey(publicKey), decodePrivateKey(privateKey)));
+            for(String previous : previousPublicKeys)
+            {
+                if(!previous.isBlank())
+                {
+                    VerificationKey key = VerificationKey.of(decodePublicKey(previous), null);
+                    keys.put(key.kid(), key);
+                }
+            }
+        }
+        keys.put(activeKey.kid(), VerificationKey.of(activeKey.publicKey(), null));
+        publish(keys);
+    }
+
+    /**
+     * Активный ключ для подписи новых токенов.
+     */
+    public SigningKey activeKey()
+    {
+        return activeKey;
+    }
+
+    /**
+     * Поиск ключа проверки по kid из заголовка токена.
+     * @param kid Идентификатор ключа
+     * @return Публичный ключ или null, если ключ неизвестен или уже выведен из оборота
+     */
+    public PublicKey findVerificationKey(String kid)
+    {
+        VerificationKey key = kid != null ? verificationKeys.get(kid) : null;
+        if(key == null || key.isExpired())
+        {
+            return null;
+        }
+        return key.publicKey();
+    }
+
+    /**
+     * Набор публичных ключей в формате JWKS, сериализованный заранее.
+     */
+    public String jwksJson()
+    {
+        return jwksJson;
+    }
+
+    /**
+     * Плановая смена сгенерированного ключа.
+     * Старый ключ остаётся в JWKS на время jwt.rotation.retention,
+     * которое должно быть не меньше времени жизни токена плюс время кеширования JWKS у клиентов.
+     */
+    @Scheduled(initialDelayString = "${jwt.rotation.interval:PT24H}", fixedDelayString = "${jwt.rotation.interval:PT24H}")
+    public synchronized void rotate()
+    {
+        if(!generated)
+        {
+            return;
+        }
+
+        SigningKey previous = activeKey;
+        SigningKey next = SigningKey.of(Jwts.SIG.ES256.keyPair().build());
+
+        Map<String, VerificationKey> keys = new LinkedHashMap<>();
+        keys.put(next.kid(), VerificationKey.of(next.publicKey(), null));
+        long retireAt = System.currentTimeMillis() + retention.toMillis();
+        verificationKeys.values().stream()
+                .filter(key -> !key.isExpired())
+                .forEach(key -> keys.put(key.kid(), key.kid().equals(previous.kid())
+                        ? VerificationKey.of(key.publicKey(), retireAt)
+                        : key));
+
+        // Новый ключ публикуется в JWKS до того, как им начнут подписывать токены
+        publish(keys);
+        activeKey = next;
+        log.info("JWT signing key rotated: {} -> {}", previous.kid(), next.kid());
+    }
+
+    private void publish(Map<String, VerificationKey> keys)
+    {
+        this.verificationKeys = Collections.unmodifiableMap(keys);
+        this.jwksJson = keys.values().stream()
+                .map(key -> Jwks.json(key.jwk()))
+                .collect(Collectors.joining(",", "{\"keys\":[", "]}"));
+    }
+
+    private static PublicKey decodePublicKey(String base64)
+    {
+        try {
+            return KeyFactory.getInstance("EC").generatePublic(new X509EncodedKeySpec(Base64.getDecoder().decode(base64.trim())));
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new IllegalStateException("Некорректный публичный ключ JWT", e);
+        }
+    }
+
+    private static PrivateKey decodePrivateKey(String base64)
+    {
+        try {
+            return KeyFactory.getInstance("EC").generatePrivate(new PKCS8EncodedKeySpec(Base64.getDecoder().decode(base64.trim())));
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new IllegalStateException("Некорректный приватный ключ JWT", e);
+        }
+    }
+
+    private static PublicJwk<ECPublicKey> toJwk(PublicKey publicKey)
+    {
+        return Jwks.builder()
+                .key((ECPublicKey) publicKey)
+                .algorithm("ES256")
+                .publicKeyUse("sig")
+                .idFromThumbprint()
+                .build();
+    }
+
+    public record SigningKey(String kid, PrivateKey privateKey, PublicKey publicKey) {
+        static SigningKey of(KeyPair keyPair) {
+            return new SigningKey(toJwk(keyPair.getPublic()).getId(), keyPair.getPrivate(), keyPair.getPublic());
+        }
+    }
+
+    private record VerificationKey(String kid, PublicKey publicKey, PublicJwk<ECPublicKey> jwk, Long retireAt) {
+        static VerificationKey of(PublicKey publicKey, Long retireAt) {
+            PublicJwk<ECPublicKey> jwk = toJwk(publicKey);
+            return new VerificationKey(jwk.getId(), publicKey, jwk, retireAt);
+        }
+
+        boolean isExpired() {
+            return retireAt != null && retireAt <= System.currentTimeMillis();
+        }
+    }
+}
@@ -2,27 +2,52 @@ package com.progress.account.security;
 
 import com.progress.account.model.Role;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-
-import io.jsonwebtoken.security.Keys;
-import org.springframework.beans.factory.annotation.Value;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.security.SignatureException;
 import org.springframework.stereotype.Component;
 
-import javax.crypto.SecretKey;
-import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.security.PublicKey;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 import static io.jsonwebtoken.Jwts.*;
 
 @Component
 public class JwtUtil {
-
-    private final SecretKey key;
-
-    public JwtUtil(@Value("${jwt.secret}") String secret) {
-        this.key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+    // Время жизни токена - 1 час
+    public static final long TOKEN_VALIDITY_MILLIS = 3600000;
+    // Момент выдачи с точностью до миллисекунды: iat хранится в секундах, и отзыв всех токенов пользователя
+    // задевал бы токен, выданный в ту же секунду сразу после отзыва
+    private static final String ISSUED_AT_MILLIS_CLAIM = "iat_ms";
+
+    private final JwtKeyStore keyStore;
+
+    // Парсер неизменяемый и потокобезопасный, поэтому создаётся один раз.
+    // Ключ проверки выбирается по kid из заголовка токена.
+    private final JwtParser parser;
+
+    public JwtUtil(JwtKeyStore keyStore) {
+        this.keyStore = keyStore;
+        this.parser = Jwts.parser()
+                .keyLocator(new LocatorAdapter<Key>() {
+                    @Override
+                    protected Key locate(JwsHeader header) {
+                        PublicKey key = keyStore.findVerificationKey(header.getKeyId());
+                        if (key == null) {
+                            throw new SignatureException("Неизвестный ключ подписи: " + header.getKeyId());
+                        }
+                        return key;
+                    }
+                })
+                .build();
     }
 
 
@@ -34,34 +59,76 @@ public class JwtUtil {
      * @return Сгенерированный JWT токен
      */
     public String generateToken(Long id, String email, Role role) {
+        return generateToken(id, email, role, null, null);
+    }
+
+    /**
+     * Генерация JWT токена со списком школ пользователя.
+     * Школы передаются в claim schools, версия членства - в claim msv.
+     * @param id ID пользователя
+     * @param email Email пользователя
+     * @param role Роль пользователя
+     * @param schoolIds ID школ пользователя или null, если claim не нужен
+     * @param membershipVersion Версия членства, на которой получен список школ
+     * @return Сгенерированный JWT токен
+     */
+    public String generateToken(Long id, String email, Role role, List<Long> schoolIds, Long membershipVersion) {
         Map<String, Object> claims = new HashMap<>();
         claims.put("role", role.name());
         claims.put("id", id);
+        if (schoolIds != null && membershipVersion != null) {
+            claims.put("schools", schoolIds);
+            claims.put("msv", membershipVersion);
+        }
         return createToken(claims, email);
     }
 
     private String createToken(Map<String, Object> claims, String subject)
     {
         Date now = new Date();
-        Date validity = new Date(now.getTime() + 3600000); // токен действителен 1 час
+        Date validity = new Date(now.getTime() + TOKEN_VALIDITY_MILLIS);
+        JwtKeyStore.SigningKey signingKey = keyStore.activeKey();
 
         return builder()
+                .header().keyId(signingKey.kid()).and()
                 .claims(claims)
+                .claim(ISSUED_AT_MILLIS_CLAIM, now.getTime())
+                .id(UUID.randomUUID().toString())
                 .subject(subject)
                 .issuedAt(now)
                 .expiration(validity)
-                .signWith(key)
+                .signWith(signingKey.privateKey(), Jwts.SIG.ES256)
                 .compact();
     }
 
     // Метод для извлечения всех claims (полей) из JWT токена
     private Claims extractAllClaims(String token)
     {
-        return Jwts.parser()
-                .verifyWith(key)
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        return parser.parseSignedClaims(token).getPayload();
+    }
+
+    /**
+     * Проверка подписи и срока действия токена с однократным разбором claims.
+     * @param token JWT токен
+     * @return Проверенный токен с ID, email и ролью пользователя
+     * @throws JwtException если токен невалиден или просрочен
+     */
+    public VerifiedToken verify(String token)
+    {
+        Claims claims = extractAllClaims(token);
+        Number id = (Number) claims.get("id");
+        Number membershipVersion = (Number) claims.get("msv");
+        List<?> schools = claims.get("schools", List.class);
+        Number issuedAtMillis = (Number) claims.get(ISSUED_AT_MILLIS_CLAIM);
+        return new VerifiedToken(
+                id != null ? id.longValue() : null,
+                claims.getSubject(),
+                (String) claims.get("role"),
+                claims.getId(),
+                issuedAtMillis != null ? new Date(issuedAtMillis.longValue()) : claims.getIssuedAt(),
+                claims.getExpiration(),
+                schools != null ? schools.stream().map(school -> ((Number) school).longValue()).toList() : null,
+                membershipVersion != null ? membershipVersion.longValue() : null);
     }
 
     /**
@@ -0,0 +1,51 @@
+package com.progress.account.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+
+/**
+ * Ограничение частоты попыток входа по email и по IP клиента.
+ * Проверка выполняется до обращения к БД и до проверки пароля BCrypt.
+ * Лимит по IP выше, чем по email, так как за одним адресом может быть целая школа.
+ */
+@Component
+public class LoginThrottle {
+    private final SlidingWindowLimiter emailLimiter;
+    private final SlidingWindowLimiter ipLimiter;
+
+    public LoginThrottle(@Value("${security.login.email.max-attempts:10}") int emailMaxAttempts,
+                         @Value("${security.login.ip.max-attempts:100}") int ipMaxAttempts,
+                         @Value("${security.login.window-seconds:60}") long windowSeconds,
+                         @Value("${security.login.stripes:64}") int stripes,
+                         @Value("${security.login.max-keys-per-stripe:1024}") int maxKeysPerStripe)
+    {
+        long windowMillis = windowSeconds * 1000;
+        this.emailLimiter = new SlidingWindowLimiter(emailMaxAttempts, windowMillis, stripes, maxKeysPerStripe);
+        this.ipLimiter = new SlidingWindowLimiter(ipMaxAttempts, windowMillis, stripes, maxKeysPerStripe);
+    }
+
+    /**
+     * Регистрация попытки входа.
+     * Оба лимита проверяются и расходуются атомарно: попытка, отклонённая по email,
+     * не расходует лимит IP, и наоборот.
+     * @param email Email из запроса
+     * @param clientIp IP адрес клиента (за доверенным прокси - из X-Forwarded-For, см. server.tomcat.remoteip)
+     * @throws TooManyAttemptsException если превышен лимит по email или по IP
+     */
+    public void acquire(String email, String clientIp)
+    {
+        String emailKey = email != null ? email.trim().toLowerCase(Locale.ROOT) : null;
+        reject(SlidingWindowLimiter.tryAcquire(ipLimiter, clientIp, emailLimiter, emailKey));
+    }
+
+    private static void reject(long retryAfterMillis)
+    {
+        if(retryAfterMillis > 0)
+        {
+            long seconds = Math.max(1, (retryAfterMillis + 999) / 1000);
+            throw new TooManyAttemptsException("Слишком много попыток входа, повторите позже", seconds);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.progress.account.security;
 
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -17,16 +18,18 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 @Configuration
 public class SecurityConfig {
 
-    private final JwtUtil jwtUtil;
+    private final TokenVerifier tokenVerifier;
+    private final ServiceAuthorization serviceAuthorization;
 
-    public SecurityConfig(JwtUtil jwtUtil)
+    public SecurityConfig(TokenVerifier tokenVerifier, ServiceAuthorization serviceAuthorization)
     {
-        this.jwtUtil = jwtUtil;
+        this.tokenVerifier = tokenVerifier;
+        this.serviceAuthorization = serviceAuthorization;
     }
 
     @Bean
     public JwtAuthFilter jwtAuthFilter() {
-        return new JwtAuthFilter(jwtUtil);
+        return new JwtAuthFilter(tokenVerifier);
     }
 
     @Bean
@@ -48,10 +51,21 @@ public class SecurityConfig {
                     .requestMatchers("/swagger-ui/**", "/v3/api-docs/**", "/swagger-ui.html").permitAll()
                     .requestMatchers(HttpMethod.POST, "/api/v1/auth/register", "/api/v1/auth/login").permitAll()
                     .requestMatchers(HttpMethod.GET, "/api/v1/auth/validate").permitAll()
+                    .requestMatchers(HttpMethod.POST, "/api/v1/auth/validate/batch").permitAll()
+                    .requestMatchers(HttpMethod.GET, "/api/v1/auth/.well-known/jwks.json").permitAll()
                     .requestMatchers(HttpMethod.GET, "/api/v1/auth/user").authenticated()
                     .requestMatchers(HttpMethod.PUT, "/api/v1/auth/user").authenticated()
                     .requestMatchers(HttpMethod.DELETE, "/api/v1/auth/user").hasAuthority("ADMIN")
+                    .requestMatchers(HttpMethod.POST, "/api/v1/auth/logout").authenticated()
+                    .requestMatchers(HttpMethod.POST, "/api/v1/auth/refresh").permitAll()
+                    // Только для сервисов: внутренний порт и X-Service-Token, путь сравнивается после декодирования
+                    .requestMatchers(HttpMethod.GET, "/api/v1/auth/events").access(serviceAuthorization)
                     .requestMatchers(HttpMethod.GET, "/api/v1/auth/users", "/api/v1/auth/user/{id}").hasAuthority("ADMIN")
+                    .requestMatchers(HttpMethod.GET, "/api/v1/auth/users/search").hasAuthority("ADMIN")
+                    .requestMatchers("/api/v1/auth/users/lookup").hasAuthority("ADMIN")
+                    .requestMatchers(HttpMethod.GET, "/api/v1/auth/users/export").hasAuthority("ADMIN")
+                    .requestMatchers(HttpMethod.POST, "/api/v1/auth/users/import").hasAuthority("ADMIN")
+                    .requestMatchers(HttpMethod.GET, "/api/v1/auth/metrics/**").hasAuthority("ADMIN")
 
                 .anyRequest().denyAll()
             )
@@ -60,8 +74,18 @@ public class SecurityConfig {
         return http.build();
     }
 
+    /**
+     * Кодировщик паролей BCrypt.
+     * Если стоимость не задана явно, она подбирается при старте под целевое время хеширования.
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${security.password.bcrypt.strength:0}") int strength,
+                                           @Value("${security.password.bcrypt.target-ms:250}") long targetMillis,
+                                           @Value("${security.password.bcrypt.min-strength:10}") int minStrength,
+                                           @Value("${security.password.bcrypt.max-strength:14}") int maxStrength) {
+        if (strength <= 0) {
+            strength = BCryptCalibration.calibrate(targetMillis, minStrength, maxStrength);
+        }
+        return new BCryptPasswordEncoder(strength);
     }
 }
@@ -0,0 +1,68 @@
+package com.progress.account.security;
+
+import com.progress.account.config.ConnectorLanes;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.authorization.AuthorizationResult;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.function.Supplier;
+
+/**
+ * Доступ к путям только для других сервисов (поток событий пользователей).
+ * Запрос должен прийти на внутренний порт и содержать общий секрет сервисов в заголовке X-Service-Token.
+ * Если секрет не задан, такие пути недоступны.
+ */
+@Component
+public class ServiceAuthorization implements AuthorizationManager<RequestAuthorizationContext> {
+    private static final Logger log = LoggerFactory.getLogger(ServiceAuthorization.class);
+
+    public static final String HEADER = "X-Service-Token";
+
+    private final ConnectorLanes connectorLanes;
+    private final byte[] serviceToken;
+
+    public ServiceAuthorization(ConnectorLanes connectorLanes,
+                                @Value("${security.service-token:}") String serviceToken)
+    {
+        this.connectorLanes = connectorLanes;
+        this.serviceToken = serviceToken.getBytes(StandardCharsets.UTF_8);
+        if(serviceToken.isBlank())
+        {
+            log.warn("security.service-token is not set, service-only endpoints are disabled");
+        }
+    }
+
+    @Override
+    public AuthorizationResult authorize(Supplier<Authentication> authentication, RequestAuthorizationContext context)
+    {
+        return decide(context);
+    }
+
+    // Устаревший метод интерфейса, в Spring Security 6.4 ещё абстрактный
+    @Deprecated
+    @Override
+    public AuthorizationDecision check(Supplier<Authentication> authentication, RequestAuthorizationContext context)
+    {
+        return decide(context);
+    }
+
+    private AuthorizationDecision decide(RequestAuthorizationContext context)
+    {
+        HttpServletRequest request = context.getRequest();
+        String token = request.getHeader(HEADER);
+        boolean granted = serviceToken.length > 0
+                && token != null
+                && ConnectorLanes.INTERNAL.equals(connectorLanes.laneOf(request.getLocalPort()))
+                && MessageDigest.isEqual(serviceToken, token.getBytes(StandardCharsets.UTF_8));
+        return new AuthorizationDecision(granted);
+    }
+}
@@ -0,0 +1,192 @@
+package com.progress.account.security;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Ограничитель количества попыток по ключу в скользящем окне.
+ * Ключи распределены по сегментам с отдельными блокировками, чтобы потоки не конкурировали за одну блокировку.
+ * Каждый сегмент хранит не больше maxKeysPerStripe ключей, поэтому расход памяти ограничен
+ * при любом количестве разных ключей.
+ *
+ * Новый ключ всегда получает место: в заполненном сегменте вытесняется самый давний ключ без попыток
+ * внутри окна, иначе самый давний ключ, не исчерпавший лимит, и только если таких нет среди
+ * EVICTION_SCAN самых давних - самый давний ключ. Поэтому потоком разных ключей нельзя ни заблокировать
+ * посторонние ключи, ни дёшево сбросить счётчик заблокированного ключа: для этого сегмент нужно
+ * заполнить заблокированными ключами, то есть потратить maxAttempts попыток на каждый.
+ */
+public class SlidingWindowLimiter {
+    // Сколько самых давних ключей просматривается при выборе вытесняемого
+    private static final int EVICTION_SCAN = 64;
+
+    private final Stripe[] stripes;
+    private final int maxAttempts;
+    private final long windowMillis;
+    private final LongSupplier clock;
+
+    public SlidingWindowLimiter(int maxAttempts, long windowMillis, int stripeCount, int maxKeysPerStripe)
+    {
+        this(maxAttempts, windowMillis, stripeCount, maxKeysPerStripe, System::currentTimeMillis);
+    }
+
+    SlidingWindowLimiter(int maxAttempts, long windowMillis, int stripeCount, int maxKeysPerStripe, LongSupplier clock)
+    {
+        this.maxAttempts = maxAttempts;
+        this.windowMillis = windowMillis;
+        this.clock = clock;
+        this.stripes = new Stripe[stripeCount];
+        for(int i = 0; i < stripeCount; i++)
+        {
+            stripes[i] = new Stripe(maxKeysPerStripe);
+        }
+    }
+
+    /**
+     * Регистрация попытки по ключу.
+     * @param key Ключ (email, IP и т.п.)
+     * @return 0, если попытка разрешена, иначе время в миллисекундах до следующей разрешённой попытки
+     */
+    public long tryAcquire(String key)
+    {
+        return tryAcquire(this, key, null, null);
+    }
+
+    /**
+     * Атомарная регистрация попытки сразу в двух ограничителях: попытка регистрируется в обоих,
+     * только если её разрешают оба, поэтому отказ одного не расходует лимит другого.
+     * Блокировки берутся в порядке first, second: все вызовы должны передавать ограничители в одном порядке.
+     * @param first Первый ограничитель
+     * @param firstKey Ключ в первом ограничителе или null, если он не проверяется
+     * @param second Второй ограничитель, отличный от первого
+     * @param secondKey Ключ во втором ограничителе или null, если он не проверяется
+     * @return 0, если попытка разрешена, иначе время в миллисекундах до следующей разрешённой попытки
+     */
+    public static long tryAcquire(SlidingWindowLimiter first, String firstKey,
+                                  SlidingWindowLimiter second, String secondKey)
+    {
+        Stripe firstStripe = firstKey != null ? first.stripeOf(firstKey) : null;
+        Stripe secondStripe = secondKey != null ? second.stripeOf(secondKey) : null;
+
+        if(firstStripe != null) firstStripe.lock.lock();
+        try {
+            if(secondStripe != null) secondStripe.lock.lock();
+            try {
+                long now = first.clock.getAsLong();
+                Window firstWindow = firstStripe != null ? firstStripe.windows.get(firstKey) : null;
+                Window secondWindow = secondStripe != null ? secondStripe.windows.get(secondKey) : null;
+
+                long retryAfter = Math.max(
+                        firstWindow != null ? firstWindow.retryAfter(now, first.windowMillis) : 0,
+                        secondWindow != null ? secondWindow.retryAfter(now, second.windowMillis) : 0);
+                if(retryAfter > 0)
+                {
+                    return retryAfter;
+                }
+
+                if(firstStripe != null) first.record(firstStripe, firstKey, firstWindow, now);
+                if(secondStripe != null) second.record(secondStripe, secondKey, secondWindow, now);
+                return 0;
+            } finally {
+                if(secondStripe != null) secondStripe.lock.unlock();
+            }
+        } finally {
+            if(firstStripe != null) firstStripe.lock.unlock();
+        }
+    }
+
+    // Вызывается под блокировкой сегмента, попытка уже проверена
+    private void record(Stripe stripe, String key, Window window, long now)
+    {
+        if(window == null)
+        {
+            stripe.makeRoom(now, windowMillis);
+            window = new Window(maxAttempts);
+        }
+        else
+        {
+            stripe.windows.remove(key);
+        }
+        // Ключ переносится в конец, сегмент упорядочен по времени последней попытки
+        stripe.windows.put(key, window);
+        window.record(now);
+    }
+
+    private Stripe stripeOf(String key)
+    {
+        return stripes[Math.floorMod(key.hashCode(), stripes.length)];
+    }
+
+    private static final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        // В порядке последней попытки: первым идёт ключ с самой давней последней попыткой
+        private final LinkedHashMap<String, Window> windows = new LinkedHashMap<>();
+        private final int maxKeys;
+
+        private Stripe(int maxKeys)
+        {
+            this.maxKeys = maxKeys;
+        }
+
+        private void makeRoom(long now, long windowMillis)
+        {
+            if(windows.size() < maxKeys)
+            {
+                return;
+            }
+
+            Iterator<Map.Entry<String, Window>> iterator = windows.entrySet().iterator();
+            String eldest = null;
+            String notExhausted = null;
+            for(int i = 0; i < EVICTION_SCAN && iterator.hasNext(); i++)
+            {
+                Map.Entry<String, Window> entry = iterator.next();
+                if(entry.getValue().isIdle(now, windowMillis))
+                {
+                    iterator.remove();
+                    return;
+                }
+                if(eldest == null)
+                {
+                    eldest = entry.getKey();
+                }
+                if(notExhausted == null && entry.getValue().retryAfter(now, windowMillis) == 0)
+                {
+                    notExhausted = entry.getKey();
+                }
+            }
+            windows.remove(notExhausted != null ? notExhausted : eldest);
+        }
+    }
+
+    // Кольцевой буфер времён последних maxAttempts попыток
+    private static final class Window {
+        private final long[] attempts;
+        private int next;
+
+        private Window(int maxAttempts)
+        {
+            this.attempts = new long[maxAttempts];
+        }
+
+        private long retryAfter(long now, long windowMillis)
+        {
+            // В слоте next лежит самая старая из последних maxAttempts попыток
+            long oldest = attempts[next];
+            return oldest != 0 && now - oldest < windowMillis ? oldest + windowMillis - now : 0;
+        }
+
+        private boolean isIdle(long now, long windowMillis)
+        {
+            return now - attempts[(next + attempts.length - 1) % attempts.length] >= windowMillis;
+        }
+
+        private void record(long now)
+        {
+            attempts[next] = now;
+            next = (next + 1) % attempts.length;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.progress.account.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Хранилище отозванных токенов.
+ * Отзыв хранится в БД двумя способами: по jti отдельного токена (revoked_tokens)
+ * и по пользователю - все токены, выданные не позже указанного момента (user_token_epochs).
+ *
+ * Перед БД стоит фильтр Блума по jti, поэтому проверка неотозванного токена обходится без запроса к БД;
+ * в БД проверяются только ответы фильтра "возможно да", и результат такой проверки запоминается до истечения
+ * токена, чтобы повторное предъявление отозванного токена не шло в БД каждый раз. Моменты отзыва
+ * по пользователям хранятся в памяти целиком с точностью до миллисекунды, их немного.
+ *
+ * Отзывы других экземпляров сервиса подгружаются раз в jwt.revocation.sync-interval.
+ * Граница подгрузки берётся по часам БД, в которых записаны revoked_at и updated_at,
+ * поэтому расхождение часов экземпляров и БД не приводит к пропуску отзывов.
+ * Записи старше времени жизни токена удаляются, и фильтр пересоздаётся раз в jwt.revocation.rebuild-interval.
+ */
+@Component
+public class TokenRevocationStore {
+    private static final Logger log = LoggerFactory.getLogger(TokenRevocationStore.class);
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+    // Перекрытие при подгрузке новых отзывов, чтобы не пропустить транзакции, завершившиеся позже
+    private static final Duration SYNC_OVERLAP = Duration.ofMinutes(1);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long expectedInsertions;
+
+    private volatile BloomFilter filter;
+    // jti -> результат проверки в БД для jti, на которые фильтр ответил "возможно да"
+    private final Cache<String, Boolean> checked;
+    // user_id -> момент отзыва в миллисекундах, токены, выданные не позже него, отозваны
+    private final Map<Long, Long> userEpochs = new ConcurrentHashMap<>();
+    // Момент по часам БД, до которого отзывы уже подгружены
+    private Timestamp syncedUntil = new Timestamp(0);
+
+    public TokenRevocationStore(JdbcTemplate jdbcTemplate,
+                                @Value("${jwt.revocation.expected-insertions:10000}") long expectedInsertions,
+                                @Value("${jwt.revocation.checked-cache.max-size:100000}") long checkedCacheSize)
+    {
+        this.jdbcTemplate = jdbcTemplate;
+        this.expectedInsertions = expectedInsertions;
+        this.filter = new BloomFilter(expectedInsertions, FALSE_POSITIVE_RATE);
+        this.checked = Caffeine.newBuilder()
+                .maximumSize(checkedCacheSize)
+                .expireAfterWrite(Duration.ofMillis(JwtUtil.TOKEN_VALIDITY_MILLIS))
+                .build();
+    }
+
+    /**
+     * Проверка, отозван ли токен.
+     * @param token Проверенный токен
+     * @return true, если токен отозван по jti или по пользователю
+     */
+    public boolean isRevoked(VerifiedToken token)
+    {
+        if(token.getId() != null && token.getIssuedAt() != null)
+        {
+            Long epoch = userEpochs.get(token.getId());
+            if(epoch != null && token.getIssuedAt().getTime() <= epoch)
+            {
+                return true;
+            }
+        }
+
+        String jti = token.getJti();
+        if(jti == null || !filter.mightContain(jti))
+        {
+            return false;
+        }
+        return checked.get(jti, key -> Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM revoked_tokens WHERE jti = ?)", Boolean.class, key)));
+    }
+
+    /**
+     * Отзыв одного токена.
+     * @param token Проверенный токен
+     */
+    public void revoke(VerifiedToken token)
+    {
+        if(token.getJti() == null)
+        {
+            revokeAll(token.getId());
+            return;
+        }
+
+        jdbcTemplate.update("INSERT INTO revoked_tokens (jti, user_id, expires_at, revoked_at) VALUES (?, ?, ?, now()) " +
+                "ON CONFLICT (jti) DO NOTHING",
+                token.getJti(), token.getId(), new Timestamp(token.getExpiration().getTime()));
+        synchronized (this) {
+            filter.put(token.getJti());
+        }
+        checked.put(token.getJti(), Boolean.TRUE);
+    }
+
+    /**
+     * Отзыв всех токенов пользователя, выданных до текущего момента.
+     * Сравнение идёт с точностью до миллисекунды, поэтому токен, выданный сразу после отзыва
+     * (например, при входе с новым паролем), остаётся действительным.
+     * @param userId ID пользователя
+     */
+    public void revokeAll(Long userId)
+    {
+        long epoch = System.currentTimeMillis();
+        jdbcTemplate.update("INSERT INTO user_token_epochs (user_id, not_before_ms, updated_at) VALUES (?, ?, clock_timestamp()) " +
+                "ON CONFLICT (user_id) DO UPDATE " +
+                "SET not_before_ms = GREATEST(user_token_epochs.not_before_ms, EXCLUDED.not_before_ms), " +
+                "updated_at = clock_timestamp()",
+                userId, epoch);
+        synchronized (this) {
+            userEpochs.merge(userId, epoch, Math::max);
+        }
+    }
+
+    /**
+     * Подгрузка отзывов, сделанных другими экземплярами сервиса.
+     */
+    @Scheduled(initialDelayString = "${jwt.revocation.sync-interval:PT5S}",
+               fixedDelayString = "${jwt.revocation.sync-interval:PT5S}")
+    public synchronized void sync()
+    {
+        Timestamp now = databaseNow();
+        Timestamp since = new Timestamp(syncedUntil.getTime() - SYNC_OVERLAP.toMillis());
+
+        jdbcTemplate.query("SELECT jti FROM revoked_tokens WHERE revoked_at > ?",
+                resultSet -> {
+                    String jti = resultSet.getString(1);
+                    filter.put(jti);
+                    checked.put(jti, Boolean.TRUE);
+                }, since);
+        jdbcTemplate.query("SELECT user_id, not_before_ms FROM user_token_epochs WHERE updated_at > ?",
+                resultSet -> { userEpochs.merge(resultSet.getLong(1), resultSet.getLong(2), Math::max); }, since);
+        syncedUntil = now;
+    }
+
+    /**
+     * Удаление отзывов, которые больше не нужны, и пересоздание фильтра.
+     * Отзыв jti не нужен после истечения токена, отзыв по пользователю - через время жизни токена.
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${jwt.revocation.rebuild-interval:PT10M}")
+    public synchronized void rebuild()
+    {
+        Timestamp now = databaseNow();
+        long epochThreshold = System.currentTimeMillis() - JwtUtil.TOKEN_VALIDITY_MILLIS;
+
+        jdbcTemplate.update("DELETE FROM revoked_tokens WHERE expires_at < now()");
+        jdbcTemplate.update("DELETE FROM user_token_epochs WHERE not_before_ms < ?", epochThreshold);
+
+        Long count = jdbcTemplate.queryForObject("SELECT count(*) FROM revoked_tokens", Long.class);
+        BloomFilter next = new BloomFilter(Math.max(expectedInsertions, 2 * (count != null ? count : 0)), FALSE_POSITIVE_RATE);
+        jdbcTemplate.query("SELECT jti FROM revoked_tokens", resultSet -> { next.put(resultSet.getString(1)); });
+
+        Map<Long, Long> epochs = new ConcurrentHashMap<>();
+        jdbcTemplate.query("SELECT user_id, not_before_ms FROM user_token_epochs",
+                resultSet -> { epochs.put(resultSet.getLong(1), resultSet.getLong(2)); });
+
+        filter = next;
+        userEpochs.keySet().retainAll(epochs.keySet());
+        epochs.forEach((userId, epoch) -> userEpochs.merge(userId, epoch, Math::max));
+        syncedUntil = now;
+        log.debug("Revocation filter rebuilt with {} tokens and {} user epochs", count, epochs.size());
+    }
+
+    private Timestamp databaseNow()
+    {
+        return jdbcTemplate.queryForObject("SELECT clock_timestamp()::timestamp", Timestamp.class);
+    }
+}
@@ -0,0 +1,109 @@
+package com.progress.account.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.jsonwebtoken.JwtException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Проверка JWT токенов с кешем уже проверенных токенов.
+ * Клиенты присылают один и тот же токен весь срок его жизни,
+ * поэтому повторные запросы обходятся без проверки подписи и разбора claims.
+ * Ключ кеша - SHA-256 от токена, сам токен в памяти не хранится.
+ */
+@Component
+public class TokenVerifier {
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private final JwtUtil jwtUtil;
+    private final TokenRevocationStore revocationStore;
+    private final Cache<String, VerifiedToken> cache;
+
+    public TokenVerifier(JwtUtil jwtUtil,
+                         TokenRevocationStore revocationStore,
+                         @Value("${jwt.cache.max-size:10000}") long maxSize)
+    {
+        this.jwtUtil = jwtUtil;
+        this.revocationStore = revocationStore;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new ExpireAtTokenExpiration())
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Проверка токена с использованием кеша.
+     * Отзыв проверяется при каждом вызове, в том числе для токенов из кеша.
+     * @param token JWT токен
+     * @return Проверенный токен
+     * @throws JwtException если токен невалиден, просрочен или отозван
+     */
+    public VerifiedToken verify(String token)
+    {
+        VerifiedToken verifiedToken = cache.get(digest(token), key -> jwtUtil.verify(token));
+        if(revocationStore.isRevoked(verifiedToken))
+        {
+            throw new JwtException("Токен отозван");
+        }
+        return verifiedToken;
+    }
+
+    /**
+     * Статистика кеша: попадания, промахи и вытеснения.
+     * @return Снимок статистики
+     */
+    public CacheStats stats()
+    {
+        return cache.stats();
+    }
+
+    /**
+     * Текущее количество токенов в кеше.
+     * @return Приблизительный размер кеша
+     */
+    public long size()
+    {
+        return cache.estimatedSize();
+    }
+
+    private static String digest(String token)
+    {
+        byte[] hash = SHA_256.get().digest(token.getBytes(StandardCharsets.US_ASCII));
+        return Base64.getEncoder().withoutPadding().encodeToString(hash);
+    }
+
+    // Запись живёт ровно до момента истечения токена
+    private static class ExpireAtTokenExpiration implements Expiry<String, VerifiedToken> {
+        @Override
+        public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+            long millisLeft = value.getExpiration().getTime() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, millisLeft));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
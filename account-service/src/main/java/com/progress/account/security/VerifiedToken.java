@@ -0,0 +1,58 @@
+package com.progress.account.security;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Проверенный JWT токен.
+ * Создаётся один раз после проверки подписи и срока действия,
+ * дальше данные берутся из него без повторного разбора токена.
+ */
+public final class VerifiedToken {
+    private final Long id;
+    private final String email;
+    private final String role;
+    private final String jti;
+    private final Date issuedAt;
+    private final Date expiration;
+    private final List<Long> schoolIds;
+    private final Long membershipVersion;
+
+    public VerifiedToken(Long id, String email, String role, String jti, Date issuedAt, Date expiration,
+                         List<Long> schoolIds, Long membershipVersion) {
+        this.id = id;
+        this.email = email;
+        this.role = role;
+        this.jti = jti;
+        this.issuedAt = issuedAt;
+        this.expiration = expiration;
+        this.schoolIds = schoolIds != null ? List.copyOf(schoolIds) : null;
+        this.membershipVersion = membershipVersion;
+    }
+
+    public Long getId() { return id; }
+
+    public String getEmail() { return email; }
+
+    public String getRole() { return role; }
+
+    // Идентификатор токена или null для токенов, выданных до появления отзыва
+    public String getJti() { return jti; }
+
+    public Date getIssuedAt() { return issuedAt != null ? new Date(issuedAt.getTime()) : null; }
+
+    public Date getExpiration() { return new Date(expiration.getTime()); }
+
+    // Школы пользователя на момент выдачи токена или null, если claim отсутствует
+    public List<Long> getSchoolIds() { return schoolIds; }
+
+    public Long getMembershipVersion() { return membershipVersion; }
+
+    /**
+     * Проверка, истёк ли срок действия токена на текущий момент.
+     * @return true, если токен просрочен
+     */
+    public boolean isExpired() {
+        return expiration.getTime() <= System.currentTimeMillis();
+    }
+}
@@ -1,66 +1,296 @@
 package com.progress.account.service;
 
+import com.progress.account.dto.AuthResponse;
+import com.progress.account.dto.LoginRequest;
 import com.progress.account.dto.RegisterRequest;
+import com.progress.account.dto.UserProfile;
+import com.progress.account.model.Role;
 import com.progress.account.model.User;
 import com.progress.account.repository.UserRepository;
+import com.progress.account.security.CredentialsCache;
 import com.progress.account.security.JwtUtil;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import com.progress.account.security.LoginThrottle;
+import com.progress.account.security.TokenRevocationStore;
+import com.progress.account.security.TooManyAttemptsException;
+import com.progress.account.security.VerifiedToken;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
 public class AuthService {
+    private static final String UNIQUE_VIOLATION = "23505";
+    private static final String EMAIL_INDEX = "ux_users_email_lower";
+
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
     private final JwtUtil jwtUtil;
+    private final LoginThrottle loginThrottle;
+    private final CredentialsCache credentialsCache;
+    private final UserProfileCache userProfileCache;
+    private final SchoolMembershipService schoolMembershipService;
+    private final TokenRevocationStore tokenRevocationStore;
+    private final RefreshTokenService refreshTokenService;
+    private final UserOutbox userOutbox;
+    private final TransactionTemplate transactionTemplate;
 
-    public AuthService(UserRepository userRepository, PasswordEncoder passwordEncoder, JwtUtil jwtUtil) {
+    public AuthService(UserRepository userRepository,
+                       PasswordHashingService passwordHashingService,
+                       JwtUtil jwtUtil,
+                       LoginThrottle loginThrottle,
+                       CredentialsCache credentialsCache,
+                       UserProfileCache userProfileCache,
+                       SchoolMembershipService schoolMembershipService,
+                       TokenRevocationStore tokenRevocationStore,
+                       RefreshTokenService refreshTokenService,
+                       UserOutbox userOutbox,
+                       TransactionTemplate transactionTemplate) {
+        this.userOutbox = userOutbox;
+        this.transactionTemplate = transactionTemplate;
         this.userRepository = userRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHashingService = passwordHashingService;
         this.jwtUtil = jwtUtil;
+        this.loginThrottle = loginThrottle;
+        this.credentialsCache = credentialsCache;
+        this.userProfileCache = userProfileCache;
+        this.schoolMembershipService = schoolMembershipService;
+        this.tokenRevocationStore = tokenRevocationStore;
+        this.refreshTokenService = refreshTokenService;
     }
 
     /**
      * Регистрация нового пользователя.
-     * Проверяет, что email не занят, хеширует пароль и сохраняет пользователя в БД.
+     * Хеширует пароль и сохраняет пользователя в БД.
+     * Занятость email проверяет уникальный индекс, поэтому параллельные регистрации не создают дубликатов.
+     * Событие о новом пользователе пишется в user_outbox в той же транзакции.
+     * Пароль хешируется до начала транзакции, чтобы не держать соединение с БД на время хеширования.
      * @param request объект с данными регистрации
      */
     public void register(RegisterRequest request) {
-        if (userRepository.existsByEmail(request.getEmail())) {
-            throw new RuntimeException("Email уже используется");
-        }
-
         User user = new User();
         user.setEmail(request.getEmail());
         user.setFirst_name(request.getFirst_name());
         user.setLast_name(request.getLast_name());
         user.setRole(request.getRole());
-        user.setPassword_hash(passwordEncoder.encode(request.getPassword()));
+        user.setPassword_hash(passwordHashingService.encode(request.getPassword()));
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                userRepository.saveAndFlush(user);
+                userOutbox.upserted(user);
+            });
+        } catch (DataIntegrityViolationException e) {
+            if(isDuplicateEmail(e))
+            {
+                throw new RuntimeException("Email уже используется");
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Вход пользователя.
+     * Проверяет пароль и выдаёт JWT токен и refresh токен новой цепочки.
+     * Если хеш пароля создан с устаревшей стоимостью, он пересчитывается в фоне.
+     * @param request объект с email и паролем
+     * @param clientIp IP адрес клиента
+     * @return JWT токен и refresh токен
+     * @throws TooManyAttemptsException если превышен лимит попыток входа
+     * @throws UsernameNotFoundException если пользователь не найден
+     * @throws BadCredentialsException если пароль неверный
+     */
+    public AuthResponse login(LoginRequest request, String clientIp)
+    {
+        loginThrottle.acquire(request.getEmail(), clientIp);
+
+        CredentialsCache.Credentials credentials = credentialsCache
+                .get(request.getEmail(), userRepository::findByEmailIgnoreCase)
+                .orElseThrow(() -> new UsernameNotFoundException("Пользователь не найден"));
+
+        String passwordHash = credentials.passwordHash();
+        if(!passwordHashingService.matches(request.getPassword(), passwordHash))
+        {
+            throw new BadCredentialsException("Неверный пароль");
+        }
 
-        userRepository.save(user);
+        if(passwordHashingService.needsRehash(passwordHash))
+        {
+            passwordHashingService.rehashInBackground(request.getPassword(), newHash -> {
+                userRepository.replacePasswordHash(credentials.id(), passwordHash, newHash);
+                credentialsCache.invalidate(credentials.email());
+            });
+        }
+
+        return new AuthResponse(
+                issueAccessToken(credentials.id(), credentials.email(), credentials.role()),
+                refreshTokenService.issue(credentials.id()));
+    }
+
+    /**
+     * Обновление пары токенов по refresh токену без проверки пароля.
+     * Предъявленный refresh токен становится недействительным, взамен выдаётся новый.
+     * @param refreshToken Refresh токен
+     * @return Новый JWT токен и новый refresh токен
+     * @throws BadCredentialsException если refresh токен невалиден или пользователь удалён
+     */
+    public AuthResponse refresh(String refreshToken)
+    {
+        if(refreshToken == null || refreshToken.isBlank())
+        {
+            throw new BadCredentialsException("Отсутствует refresh токен");
+        }
+
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate(refreshToken);
+        UserProfile profile = userProfileCache.get(rotation.userId());
+        if(profile == null)
+        {
+            throw new BadCredentialsException("Пользователь не найден");
+        }
+
+        return new AuthResponse(
+                issueAccessToken(profile.getId(), profile.getEmail(), profile.getRole()),
+                rotation.refreshToken());
+    }
+
+    private String issueAccessToken(Long id, String email, Role role)
+    {
+        // Список школ берётся заново при каждом входе и обновлении токена
+        SchoolMembershipService.Memberships memberships = schoolMembershipService.load(id, role);
+        if(memberships == null)
+        {
+            return jwtUtil.generateToken(id, email, role);
+        }
+        return jwtUtil.generateToken(id, email, role, memberships.schoolIds(), memberships.version());
     }
 
     /**
      * Обновление данных пользователя.
-     * Извлекает ID пользователя и обновляет данные если они переданы.
-     * @param token JWT токен авторизации
+     * Обновляет данные пользователя если они переданы.
+     * Событие об изменении пишется в user_outbox в той же транзакции.
+     * При смене пароля после фиксации транзакции отзываются все выданные пользователю токены.
+     * Новый пароль хешируется до начала транзакции, кеши сбрасываются после её фиксации.
+     * @param userId ID пользователя из проверенного токена
      * @param request объект с новыми данными пользователя
      */
-    public void updateUser(String token, RegisterRequest request)
+    public void updateUser(Long userId, RegisterRequest request)
     {
-        Long userId = jwtUtil.extractId(token);
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("Пользователь не найден"));
+        String passwordHash = request.getPassword() != null
+                ? passwordHashingService.encode(request.getPassword())
+                : null;
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                User user = userRepository.findById(userId)
+                        .orElseThrow(() -> new RuntimeException("Пользователь не найден"));
+                String previousEmail = user.getEmail();
+
+                if (request.getEmail() != null) user.setEmail(request.getEmail());
+                if (passwordHash != null) user.setPassword_hash(passwordHash);
+                if (request.getFirst_name() != null) user.setFirst_name(request.getFirst_name());
+                if (request.getLast_name() != null) user.setLast_name(request.getLast_name());
+
+                userRepository.saveAndFlush(user);
+                userOutbox.upserted(user);
+                afterCommit(() -> {
+                    credentialsCache.invalidate(previousEmail);
+                    credentialsCache.invalidate(user.getEmail());
+                    userProfileCache.invalidate(userId);
+                    if(passwordHash != null)
+                    {
+                        tokenRevocationStore.revokeAll(userId);
+                        refreshTokenService.revokeAll(userId);
+                    }
+                });
+            });
+        } catch (DataIntegrityViolationException e) {
+            if(isDuplicateEmail(e))
+            {
+                throw new RuntimeException("Email уже используется");
+            }
+            throw e;
+        }
+    }
 
-        if (request.getEmail() != null) user.setEmail(request.getEmail());
-        if (request.getPassword() != null)
+    /**
+     * Выход: отзыв текущего токена или всех токенов пользователя.
+     * @param token Проверенный токен текущего запроса
+     * @param refreshToken Refresh токен текущего сеанса, его цепочка тоже отзывается, если принадлежит
+     * тому же пользователю; может быть null
+     * @param allSessions true, чтобы отозвать все токены пользователя
+     */
+    public void logout(VerifiedToken token, String refreshToken, boolean allSessions)
+    {
+        if(allSessions)
         {
-            // хешируем пароль перед сохранением
-            user.setPassword_hash(passwordEncoder.encode(request.getPassword()));
+            tokenRevocationStore.revokeAll(token.getId());
+            refreshTokenService.revokeAll(token.getId());
+            return;
         }
-        if (request.getFirst_name() != null) user.setFirst_name(request.getFirst_name());
-        if (request.getLast_name() != null) user.setLast_name(request.getLast_name());
 
-        userRepository.save(user);
+        tokenRevocationStore.revoke(token);
+        if(refreshToken != null && !refreshToken.isBlank())
+        {
+            refreshTokenService.revokeFamily(refreshToken, token.getId());
+        }
     }
 
+    /**
+     * Удаление пользователя.
+     * Все выданные пользователю токены отзываются, событие удаления пишется в user_outbox в той же транзакции.
+     * Кеши сбрасываются после фиксации транзакции.
+     * @param userId ID пользователя
+     * @throws UsernameNotFoundException если пользователь не найден
+     */
+    @Transactional
+    public void deleteUser(Long userId)
+    {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new UsernameNotFoundException("Пользователь не найден"));
+
+        userRepository.delete(user);
+        userOutbox.deleted(userId);
+        tokenRevocationStore.revokeAll(userId);
+        refreshTokenService.revokeAll(userId);
+        afterCommit(() -> {
+            credentialsCache.invalidate(user.getEmail());
+            userProfileCache.invalidate(userId);
+        });
+    }
+
+    // Только нарушение уникального индекса email; прочие нарушения целостности (например, NOT NULL) не про email
+    private static boolean isDuplicateEmail(DataIntegrityViolationException e)
+    {
+        for(Throwable cause = e; cause != null; cause = cause.getCause())
+        {
+            if(cause instanceof ConstraintViolationException violation)
+            {
+                return UNIQUE_VIOLATION.equals(violation.getSQLState())
+                        && EMAIL_INDEX.equalsIgnoreCase(violation.getConstraintName());
+            }
+        }
+        return false;
+    }
+
+    private static void afterCommit(Runnable action)
+    {
+        if(TransactionSynchronizationManager.isSynchronizationActive())
+        {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        }
+        else
+        {
+            action.run();
+        }
+    }
 }
@@ -0,0 +1,185 @@
+package com.progress.account.service;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+/**
+ * Хеширование и проверка паролей в отдельном ограниченном пуле потоков.
+ * BCrypt занимает процессор надолго, поэтому потоки Tomcat только ждут результат,
+ * а при переполнении очереди запрос сразу отклоняется.
+ */
+@Service
+public class PasswordHashingService {
+    // Пауза между попытками поставить задачу импорта в заполненную очередь
+    private static final long QUEUE_RETRY_MILLIS = 10;
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMillis;
+
+    public PasswordHashingService(PasswordEncoder passwordEncoder,
+                                  @Qualifier("passwordHashingExecutor") ThreadPoolExecutor executor,
+                                  @Value("${security.password.timeout-ms:5000}") long timeoutMillis)
+    {
+        this.passwordEncoder = passwordEncoder;
+        this.executor = executor;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Хеширование пароля.
+     * @param rawPassword Пароль в открытом виде
+     * @return Хеш пароля
+     * @throws ServiceOverloadedException если пул хеширования переполнен
+     */
+    public String encode(String rawPassword)
+    {
+        return submit(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    /**
+     * Хеширование набора паролей для массового импорта.
+     * Каждый пароль хешируется отдельной задачей, и в пуле одновременно находится не больше задач,
+     * чем в нём потоков, поэтому запросы входа не ждут за всем пакетом.
+     * Если очередь пула заполнена другими запросами, задача ждёт места в очереди не дольше
+     * security.password.timeout-ms; BCrypt никогда не выполняется в потоке Tomcat.
+     * @param rawPasswords Пароли в открытом виде
+     * @return Хеши в том же порядке
+     * @throws ServiceOverloadedException если место в очереди не освободилось за отведённое время
+     */
+    public List<String> encodeAll(List<String> rawPasswords)
+    {
+        String[] hashes = new String[rawPasswords.size()];
+        Semaphore inFlight = new Semaphore(executor.getMaximumPoolSize());
+        List<Future<?>> futures = new ArrayList<>(rawPasswords.size());
+
+        try {
+            for(int i = 0; i < rawPasswords.size(); i++)
+            {
+                int index = i;
+                inFlight.acquire();
+                Runnable task = () -> {
+                    try {
+                        hashes[index] = passwordEncoder.encode(rawPasswords.get(index));
+                    } finally {
+                        inFlight.release();
+                    }
+                };
+                Future<?> future = submitWhenQueued(task);
+                if(future == null)
+                {
+                    inFlight.release();
+                    futures.forEach(submitted -> submitted.cancel(true));
+                    throw new ServiceOverloadedException("Сервис перегружен, повторите попытку позже");
+                }
+                futures.add(future);
+            }
+
+            for(Future<?> future : futures)
+            {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(submitted -> submitted.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new ServiceOverloadedException("Операция прервана");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+        return List.of(hashes);
+    }
+
+    // Повторяет постановку в очередь, пока не истечёт timeoutMillis; null, если места так и не нашлось
+    private Future<?> submitWhenQueued(Runnable task) throws InterruptedException
+    {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while(true)
+        {
+            try {
+                return executor.submit(task);
+            } catch (RejectedExecutionException e) {
+                if(System.nanoTime() >= deadline)
+                {
+                    return null;
+                }
+                Thread.sleep(QUEUE_RETRY_MILLIS);
+            }
+        }
+    }
+
+    /**
+     * Проверка пароля по хешу.
+     * @param rawPassword Пароль в открытом виде
+     * @param passwordHash Сохранённый хеш
+     * @return true, если пароль совпадает
+     * @throws ServiceOverloadedException если пул хеширования переполнен
+     */
+    public boolean matches(String rawPassword, String passwordHash)
+    {
+        return submit(() -> passwordEncoder.matches(rawPassword, passwordHash));
+    }
+
+    /**
+     * Проверка, что хеш создан с устаревшей стоимостью и его нужно пересчитать.
+     * @param passwordHash Сохранённый хеш
+     * @return true, если хеш нужно пересчитать
+     */
+    public boolean needsRehash(String passwordHash)
+    {
+        return passwordEncoder.upgradeEncoding(passwordHash);
+    }
+
+    /**
+     * Фоновый пересчёт хеша. Если пул занят, пересчёт откладывается до следующего входа.
+     * @param rawPassword Пароль в открытом виде
+     * @param callback Получает новый хеш
+     */
+    public void rehashInBackground(String rawPassword, Consumer<String> callback)
+    {
+        try {
+            executor.execute(() -> callback.accept(passwordEncoder.encode(rawPassword)));
+        } catch (RejectedExecutionException ignored) {
+            // пересчитаем при следующем успешном входе
+        }
+    }
+
+    private <T> T submit(Callable<T> task)
+    {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            throw new ServiceOverloadedException("Сервис перегружен, повторите попытку позже");
+        }
+
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new ServiceOverloadedException("Сервис перегружен, повторите попытку позже");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceOverloadedException("Операция прервана");
+        } catch (ExecutionException e) {
+            if(e.getCause() instanceof RuntimeException runtimeException)
+            {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.progress.account.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Непрозрачные refresh токены с ротацией.
+ * В БД хранится только SHA-256 от токена. Каждый токен используется один раз: при обновлении
+ * он помечается использованным и взамен выдаётся новый токен той же цепочки (family).
+ * Повторное предъявление уже использованного токена означает, что токен утёк,
+ * поэтому вся цепочка отзывается.
+ * Срок цепочки ограничен jwt.refresh.max-lifetime от входа: ротация его не продлевает,
+ * после него нужен повторный вход с паролем.
+ */
+@Service
+public class RefreshTokenService {
+    private static final Logger log = LoggerFactory.getLogger(RefreshTokenService.class);
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final int TOKEN_BYTES = 32;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration ttl;
+    private final Duration maxLifetime;
+
+    public RefreshTokenService(JdbcTemplate jdbcTemplate,
+                               @Value("${jwt.refresh.ttl:P7D}") Duration ttl,
+                               @Value("${jwt.refresh.max-lifetime:P30D}") Duration maxLifetime)
+    {
+        this.jdbcTemplate = jdbcTemplate;
+        this.ttl = ttl;
+        this.maxLifetime = maxLifetime;
+    }
+
+    /**
+     * Выдача refresh токена новой цепочки при входе.
+     * @param userId ID пользователя
+     * @return Refresh токен
+     */
+    public String issue(Long userId)
+    {
+        return issue(userId, UUID.randomUUID().toString(), Timestamp.from(Instant.now().plus(maxLifetime)));
+    }
+
+    /**
+     * Обмен refresh токена на новый той же цепочки.
+     * @param refreshToken Предъявленный refresh токен
+     * @return ID пользователя и новый refresh токен
+     * @throws BadCredentialsException если токен неизвестен, просрочен, отозван, уже использован
+     * или истёк срок его цепочки
+     */
+    @Transactional(noRollbackFor = BadCredentialsException.class)
+    public Rotation rotate(String refreshToken)
+    {
+        String hash = hash(refreshToken);
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "UPDATE refresh_tokens SET used_at = now() " +
+                "WHERE token_hash = ? AND used_at IS NULL AND NOT revoked AND expires_at > now() " +
+                "AND family_expires_at > now() " +
+                "RETURNING user_id, family_id, family_expires_at", hash);
+
+        if(rows.isEmpty())
+        {
+            List<String> families = jdbcTemplate.queryForList(
+                    "SELECT family_id FROM refresh_tokens WHERE token_hash = ? AND used_at IS NOT NULL", String.class, hash);
+            if(!families.isEmpty())
+            {
+                log.warn("Refresh token reuse detected, revoking family {}", families.get(0));
+                jdbcTemplate.update("UPDATE refresh_tokens SET revoked = true WHERE family_id = ?", families.get(0));
+            }
+            throw new BadCredentialsException("Невалидный refresh токен");
+        }
+
+        Long userId = ((Number) rows.get(0).get("user_id")).longValue();
+        String familyId = (String) rows.get(0).get("family_id");
+        Timestamp familyExpiresAt = (Timestamp) rows.get(0).get("family_expires_at");
+        return new Rotation(userId, issue(userId, familyId, familyExpiresAt));
+    }
+
+    /**
+     * Отзыв цепочки, к которой относится токен (выход с одного устройства).
+     * Токен другого пользователя игнорируется: по чужому refresh токену нельзя завершить чужой сеанс.
+     * @param refreshToken Refresh токен
+     * @param userId ID пользователя, который выходит
+     */
+    public void revokeFamily(String refreshToken, Long userId)
+    {
+        jdbcTemplate.update("UPDATE refresh_tokens SET revoked = true WHERE user_id = ? AND family_id = " +
+                "(SELECT family_id FROM refresh_tokens WHERE token_hash = ? AND user_id = ?)",
+                userId, hash(refreshToken), userId);
+    }
+
+    /**
+     * Отзыв всех refresh токенов пользователя.
+     * @param userId ID пользователя
+     */
+    public void revokeAll(Long userId)
+    {
+        jdbcTemplate.update("UPDATE refresh_tokens SET revoked = true WHERE user_id = ? AND NOT revoked", userId);
+    }
+
+    /**
+     * Удаление просроченных токенов.
+     * Использованные токены хранятся до истечения срока, чтобы распознавать их повторное использование.
+     */
+    @Scheduled(fixedDelayString = "${jwt.refresh.cleanup-interval:PT1H}")
+    public void deleteExpired()
+    {
+        jdbcTemplate.update("DELETE FROM refresh_tokens WHERE expires_at < now()");
+    }
+
+    private String issue(Long userId, String familyId, Timestamp familyExpiresAt)
+    {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        RANDOM.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        // Токен не переживает свою цепочку
+        Timestamp expiresAt = Timestamp.from(Instant.now().plus(ttl));
+        if(familyExpiresAt.before(expiresAt))
+        {
+            expiresAt = familyExpiresAt;
+        }
+
+        jdbcTemplate.update("INSERT INTO refresh_tokens " +
+                "(token_hash, family_id, user_id, expires_at, family_expires_at, revoked, created_at) " +
+                "VALUES (?, ?, ?, ?, ?, false, now())",
+                hash(token), familyId, userId, expiresAt, familyExpiresAt);
+        return token;
+    }
+
+    private static String hash(String token)
+    {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public record Rotation(Long userId, String refreshToken) {}
+}
@@ -0,0 +1,142 @@
+package com.progress.account.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.progress.account.model.Role;
+import com.progress.account.security.VerifiedToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Членство пользователей в школах для встраивания в JWT.
+ * Членством владеет school-service, данные запрашиваются у его внутренних путей /api/v1/schools/memberships
+ * с общим секретом сервисов в X-Service-Token. School-service увеличивает версию членства пользователя
+ * при каждом его изменении, поэтому для проверки списка школ из токена достаточно закешированной версии.
+ */
+@Service
+public class SchoolMembershipService {
+    private static final Logger log = LoggerFactory.getLogger(SchoolMembershipService.class);
+
+    // Версия, которая не совпадает ни с одной версией в токенах
+    private static final long UNKNOWN_VERSION = -1;
+
+    private final RestTemplate restTemplate;
+    private final String schoolServiceUrl;
+    private final String serviceToken;
+    private final boolean enabled;
+    private final int maxSchools;
+    private final Cache<Long, Long> versions;
+
+    public SchoolMembershipService(@Value("${jwt.memberships.school-service-url:http://school-service:8081}") String schoolServiceUrl,
+                                   @Value("${security.service-token:}") String serviceToken,
+                                   @Value("${jwt.memberships.enabled:true}") boolean enabled,
+                                   @Value("${jwt.memberships.max-schools:50}") int maxSchools,
+                                   @Value("${jwt.memberships.version-ttl:PT30S}") Duration versionTtl,
+                                   @Value("${jwt.memberships.timeout:PT1S}") Duration timeout)
+    {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(timeout);
+        requestFactory.setReadTimeout(timeout);
+        this.restTemplate = new RestTemplate(requestFactory);
+        this.schoolServiceUrl = schoolServiceUrl;
+        this.serviceToken = serviceToken;
+        this.enabled = enabled;
+        this.maxSchools = maxSchools;
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(versionTtl)
+                .build();
+    }
+
+    /**
+     * Загрузка школ пользователя для нового токена.
+     * Учитываются школы, в которых пользователь состоит в своей роли: учитель - в school_teachers,
+     * ученик - в school_students.
+     * @param userId ID пользователя
+     * @param role Роль пользователя
+     * @return Школы и версия членства или null, если claim не нужен (администратор,
+     * слишком много школ, встраивание выключено или school-service недоступен)
+     */
+    public Memberships load(Long userId, Role role)
+    {
+        if(!enabled || role == Role.ADMIN)
+        {
+            return null;
+        }
+
+        try {
+            // School-service читает версию до списка, поэтому изменение между ними делает токен устаревшим
+            Memberships memberships = restTemplate.exchange(
+                    schoolServiceUrl + "/api/v1/schools/memberships/{userId}?kind={kind}",
+                    HttpMethod.GET,
+                    serviceRequest(),
+                    Memberships.class,
+                    userId, role == Role.TEACHER ? "TEACHER" : "STUDENT"
+            ).getBody();
+
+            if(memberships == null || memberships.schoolIds() == null || memberships.schoolIds().size() > maxSchools)
+            {
+                return null;
+            }
+            versions.put(userId, memberships.version());
+            return memberships;
+        } catch (RestClientException e) {
+            log.warn("School memberships are unavailable, issuing token without them: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Список школ из токена, если он не устарел.
+     * Текущая версия членства кешируется на jwt.memberships.version-ttl,
+     * поэтому изменение членства становится видно не позже чем через это время.
+     * @param token Проверенный токен
+     * @return Школы из токена или null, если claim отсутствует или версия устарела
+     */
+    public List<Long> currentSchools(VerifiedToken token)
+    {
+        if(token.getId() == null || token.getSchoolIds() == null || token.getMembershipVersion() == null)
+        {
+            return null;
+        }
+
+        long current = versions.get(token.getId(), this::loadVersion);
+        return current == token.getMembershipVersion() ? token.getSchoolIds() : null;
+    }
+
+    private long loadVersion(Long userId)
+    {
+        try {
+            Long version = restTemplate.exchange(
+                    schoolServiceUrl + "/api/v1/schools/memberships/{userId}/version",
+                    HttpMethod.GET,
+                    serviceRequest(),
+                    Long.class,
+                    userId
+            ).getBody();
+            return version != null ? version : UNKNOWN_VERSION;
+        } catch (RestClientException e) {
+            return UNKNOWN_VERSION;
+        }
+    }
+
+    private HttpEntity<Void> serviceRequest()
+    {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("X-Service-Token", serviceToken);
+        return new HttpEntity<>(headers);
+    }
+
+    public record Memberships(List<Long> schoolIds, long version) {}
+}
@@ -0,0 +1,11 @@
+package com.progress.account.service;
+
+/**
+ * Выбрасывается, когда пул потоков для тяжёлых операций переполнен
+ * и запрос отклоняется сразу, без ожидания в очереди.
+ */
+public class ServiceOverloadedException extends RuntimeException {
+    public ServiceOverloadedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,91 @@
+package com.progress.account.service;
+
+import com.progress.account.dto.TokenValidationResult;
+import com.progress.account.security.TokenVerifier;
+import com.progress.account.security.VerifiedToken;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Service
+public class TokenBatchService {
+    private final TokenVerifier tokenVerifier;
+    private final SchoolMembershipService schoolMembershipService;
+    private final ThreadPoolExecutor executor;
+    private final int maxBatchSize;
+
+    public TokenBatchService(TokenVerifier tokenVerifier,
+                             SchoolMembershipService schoolMembershipService,
+                             @Qualifier("tokenValidationExecutor") ThreadPoolExecutor executor,
+                             @Value("${jwt.batch.max-size:500}") int maxBatchSize)
+    {
+        this.tokenVerifier = tokenVerifier;
+        this.schoolMembershipService = schoolMembershipService;
+        this.executor = executor;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Проверка пакета токенов.
+     * Пакет делится на части по числу потоков пула, части проверяются параллельно.
+     * @param tokens Список токенов (с префиксом "Bearer " или без него)
+     * @return Результаты в том же порядке, что и токены
+     */
+    public List<TokenValidationResult> validateAll(List<String> tokens)
+    {
+        if(tokens.size() > maxBatchSize)
+        {
+            throw new IllegalArgumentException("Превышен максимальный размер пакета: " + maxBatchSize);
+        }
+
+        TokenValidationResult[] results = new TokenValidationResult[tokens.size()];
+        int chunkSize = Math.max(1, (tokens.size() + executor.getMaximumPoolSize() - 1) / executor.getMaximumPoolSize());
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for(int from = 0; from < tokens.size(); from += chunkSize)
+        {
+            int start = from;
+            int end = Math.min(tokens.size(), from + chunkSize);
+            futures.add(CompletableFuture.runAsync(() -> {
+                for(int i = start; i < end; i++)
+                {
+                    results[i] = validate(tokens.get(i));
+                }
+            }, executor));
+        }
+
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        return List.of(results);
+    }
+
+    private TokenValidationResult validate(String token)
+    {
+        if(token == null || token.isBlank())
+        {
+            return TokenValidationResult.invalid("Отсутствует токен");
+        }
+
+        String raw = token.startsWith("Bearer ") ? token.substring(7) : token;
+
+        try {
+            VerifiedToken verifiedToken = tokenVerifier.verify(raw.trim());
+            if(verifiedToken.isExpired())
+            {
+                return TokenValidationResult.invalid("Токен истек");
+            }
+            return TokenValidationResult.valid(verifiedToken.getId(), verifiedToken.getEmail(), verifiedToken.getRole(),
+                    schoolMembershipService.currentSchools(verifiedToken));
+        } catch (ExpiredJwtException e) {
+            return TokenValidationResult.invalid("Токен истек");
+        } catch (JwtException | IllegalArgumentException e) {
+            return TokenValidationResult.invalid("Невалидный токен");
+        }
+    }
+}
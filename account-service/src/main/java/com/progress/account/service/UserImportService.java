@@ -0,0 +1,365 @@
+package com.progress.account.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.progress.account.dto.ImportReport;
+import com.progress.account.dto.RegisterRequest;
+import com.progress.account.model.Role;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Массовый импорт пользователей из CSV или NDJSON.
+ * Вход читается построчно, строки обрабатываются пачками по users.import.chunk-size:
+ * пароли пачки хешируются параллельно в пуле хеширования, затем пачка пишется одним JDBC batch.
+ * Ошибки отдельных строк не прерывают импорт и попадают в отчёт.
+ * Каждая пачка вместе с событиями в user_outbox пишется в отдельной транзакции.
+ * Если пачка не записалась из-за ошибки БД, её строки повторяются по одной,
+ * и в отчёт попадают только строки, которые не удалось записать.
+ */
+@Service
+public class UserImportService {
+    public static final String CSV_HEADER = "email,password,first_name,last_name,role";
+
+    // Дубликаты email (в том числе внутри одного файла) пропускаются уникальным индексом ux_users_email_lower
+    private static final String INSERT_QUERY =
+            "INSERT INTO users (email, password_hash, first_name, last_name, role, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?) ON CONFLICT ((lower(email))) DO NOTHING";
+
+    // Ограничение длины строковых колонок users
+    private static final int MAX_LENGTH = 255;
+    // Строка не записана из-за ошибки БД
+    private static final int FAILED = Integer.MIN_VALUE;
+
+    public enum Format { CSV, NDJSON }
+
+    private final PasswordHashingService passwordHashingService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final UserOutbox userOutbox;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+
+    public UserImportService(PasswordHashingService passwordHashingService,
+                             JdbcTemplate jdbcTemplate,
+                             TransactionTemplate transactionTemplate,
+                             UserOutbox userOutbox,
+                             ObjectMapper objectMapper,
+                             @Value("${users.import.chunk-size:500}") int chunkSize)
+    {
+        this.passwordHashingService = passwordHashingService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.userOutbox = userOutbox;
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Импорт пользователей из потока.
+     * CSV должен начинаться с заголовка email,password,first_name,last_name,role.
+     * Значения с запятыми и кавычками заключаются в двойные кавычки, кавычка внутри них удваивается (RFC 4180);
+     * перевод строки внутри значения не поддерживается, такая строка попадает в отчёт как ошибочная.
+     * NDJSON - один объект RegisterRequest на строку.
+     * @param in Тело запроса
+     * @param format Формат данных
+     * @return Количество созданных пользователей и ошибки по строкам
+     * @throws IllegalArgumentException если заголовок CSV не совпадает с ожидаемым
+     */
+    public ImportReport importUsers(InputStream in, Format format) throws IOException
+    {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        List<ImportReport.RowError> errors = new ArrayList<>();
+        List<Row> chunk = new ArrayList<>(chunkSize);
+        int imported = 0;
+        long lineNumber = 0;
+
+        if(format == Format.CSV)
+        {
+            String header = reader.readLine();
+            lineNumber++;
+            if(header == null || !CSV_HEADER.equalsIgnoreCase(header.strip().replace("\uFEFF", "")))
+            {
+                throw new IllegalArgumentException("Ожидается заголовок CSV: " + CSV_HEADER);
+            }
+        }
+
+        String line;
+        while((line = reader.readLine()) != null)
+        {
+            lineNumber++;
+            if(line.isBlank())
+            {
+                continue;
+            }
+
+            RegisterRequest request;
+            try {
+                request = format == Format.CSV ? parseCsv(line) : objectMapper.readValue(line, RegisterRequest.class);
+            } catch (UnknownRoleException e) {
+                errors.add(new ImportReport.RowError(lineNumber, e.email, "Неизвестная роль"));
+                continue;
+            } catch (MalformedCsvException e) {
+                errors.add(new ImportReport.RowError(lineNumber, null, e.getMessage()));
+                continue;
+            } catch (JsonProcessingException | IllegalArgumentException e) {
+                errors.add(new ImportReport.RowError(lineNumber, null, "Некорректная строка"));
+                continue;
+            }
+
+            String error = validate(request);
+            if(error != null)
+            {
+                errors.add(new ImportReport.RowError(lineNumber, request.getEmail(), error));
+                continue;
+            }
+
+            chunk.add(new Row(lineNumber, request));
+            if(chunk.size() == chunkSize)
+            {
+                imported += insert(chunk, errors);
+                chunk.clear();
+            }
+        }
+
+        if(!chunk.isEmpty())
+        {
+            imported += insert(chunk, errors);
+        }
+        return new ImportReport(imported, errors);
+    }
+
+    private int insert(List<Row> chunk, List<ImportReport.RowError> errors)
+    {
+        List<String> hashes = passwordHashingService.encodeAll(
+                chunk.stream().map(row -> row.request().getPassword()).toList());
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        int[] counts;
+        try {
+            counts = transactionTemplate.execute(status -> insertWithEvents(chunk, hashes, now));
+        } catch (DataAccessException e) {
+            counts = insertRowByRow(chunk, hashes, now);
+        }
+
+        int inserted = 0;
+        for(int i = 0; i < chunk.size(); i++)
+        {
+            Row row = chunk.get(i);
+            if(counts[i] == FAILED)
+            {
+                errors.add(new ImportReport.RowError(row.line(), row.request().getEmail(), "Не удалось сохранить пользователя"));
+            }
+            else if(counts[i] == 0)
+            {
+                errors.add(new ImportReport.RowError(row.line(), row.request().getEmail(), "Email уже используется"));
+            }
+            else
+            {
+                inserted++;
+            }
+        }
+        return inserted;
+    }
+
+    // Каждая строка в своей транзакции: ошибка одной строки не откатывает остальные
+    private int[] insertRowByRow(List<Row> chunk, List<String> hashes, Timestamp now)
+    {
+        int[] counts = new int[chunk.size()];
+        for(int i = 0; i < chunk.size(); i++)
+        {
+            List<Row> row = chunk.subList(i, i + 1);
+            List<String> hash = hashes.subList(i, i + 1);
+            try {
+                counts[i] = transactionTemplate.execute(status -> insertWithEvents(row, hash, now))[0];
+            } catch (DataAccessException e) {
+                counts[i] = FAILED;
+            }
+        }
+        return counts;
+    }
+
+    private int[] insertWithEvents(List<Row> chunk, List<String> hashes, Timestamp now)
+    {
+        int[] counts = jdbcTemplate.batchUpdate(INSERT_QUERY, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement statement, int i) throws SQLException {
+                RegisterRequest request = chunk.get(i).request();
+                statement.setString(1, request.getEmail().strip());
+                statement.setString(2, hashes.get(i));
+                statement.setString(3, request.getFirst_name());
+                statement.setString(4, request.getLast_name());
+                statement.setString(5, request.getRole().name());
+                statement.setTimestamp(6, now);
+                statement.setTimestamp(7, now);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return chunk.size();
+            }
+        });
+
+        List<String> insertedEmails = new ArrayList<>();
+        for(int i = 0; i < chunk.size(); i++)
+        {
+            if(counts[i] != 0)
+            {
+                insertedEmails.add(chunk.get(i).request().getEmail().strip());
+            }
+        }
+        userOutbox.upsertedByEmails(insertedEmails);
+        return counts;
+    }
+
+    private static RegisterRequest parseCsv(String line)
+    {
+        List<String> values = splitCsv(line);
+        if(values.size() != 5)
+        {
+            throw new MalformedCsvException("Ожидается 5 значений, получено " + values.size());
+        }
+
+        RegisterRequest request = new RegisterRequest();
+        request.setEmail(values.get(0).strip());
+        request.setPassword(values.get(1));
+        request.setFirst_name(values.get(2).strip());
+        request.setLast_name(values.get(3).strip());
+        String role = values.get(4).strip();
+        if(!role.isEmpty())
+        {
+            try {
+                request.setRole(Role.valueOf(role.toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException e) {
+                throw new UnknownRoleException(request.getEmail());
+            }
+        }
+        return request;
+    }
+
+    /**
+     * Разбор строки CSV по RFC 4180: значение в двойных кавычках может содержать запятые,
+     * кавычка внутри него удваивается. Пробелы вокруг значений не отбрасываются.
+     * @param line Строка без перевода строки
+     * @return Значения строки
+     * @throws MalformedCsvException если кавычки в строке расставлены некорректно
+     */
+    static List<String> splitCsv(String line)
+    {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        boolean afterQuoted = false;
+        for(int i = 0; i < line.length(); i++)
+        {
+            char c = line.charAt(i);
+            if(quoted)
+            {
+                if(c != '"')
+                {
+                    value.append(c);
+                }
+                else if(i + 1 < line.length() && line.charAt(i + 1) == '"')
+                {
+                    value.append('"');
+                    i++;
+                }
+                else
+                {
+                    quoted = false;
+                    afterQuoted = true;
+                }
+            }
+            else if(c == ',')
+            {
+                values.add(value.toString());
+                value.setLength(0);
+                afterQuoted = false;
+            }
+            else if(afterQuoted)
+            {
+                throw new MalformedCsvException("Лишние символы после закрывающей кавычки");
+            }
+            else if(c == '"')
+            {
+                if(!value.isEmpty())
+                {
+                    throw new MalformedCsvException("Кавычка внутри значения без кавычек");
+                }
+                quoted = true;
+            }
+            else
+            {
+                value.append(c);
+            }
+        }
+        if(quoted)
+        {
+            throw new MalformedCsvException("Незакрытая кавычка: перевод строки внутри значения не поддерживается");
+        }
+        values.add(value.toString());
+        return values;
+    }
+
+    private static String validate(RegisterRequest request)
+    {
+        if(request.getEmail() == null || request.getEmail().isBlank())
+        {
+            return "Не указан email";
+        }
+        if(request.getPassword() == null || request.getPassword().isEmpty())
+        {
+            return "Не указан пароль";
+        }
+        if(request.getFirst_name() == null || request.getFirst_name().isBlank()
+                || request.getLast_name() == null || request.getLast_name().isBlank())
+        {
+            return "Не указаны имя или фамилия";
+        }
+        if(request.getRole() == null)
+        {
+            return "Не указана роль";
+        }
+        if(request.getEmail().strip().length() > MAX_LENGTH
+                || request.getFirst_name().length() > MAX_LENGTH || request.getLast_name().length() > MAX_LENGTH)
+        {
+            return "Email, имя или фамилия длиннее " + MAX_LENGTH + " символов";
+        }
+        return null;
+    }
+
+    private record Row(long line, RegisterRequest request) {}
+
+    private static class UnknownRoleException extends RuntimeException {
+        private final String email;
+
+        private UnknownRoleException(String email)
+        {
+            this.email = email;
+        }
+    }
+
+    static class MalformedCsvException extends IllegalArgumentException {
+        MalformedCsvException(String reason)
+        {
+            super("Некорректная строка CSV: " + reason);
+        }
+    }
+}
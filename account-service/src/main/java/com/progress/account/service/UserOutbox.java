@@ -0,0 +1,158 @@
+package com.progress.account.service;
+
+import com.progress.account.dto.UserEvent;
+import com.progress.account.model.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Transactional outbox изменений пользователей.
+ * Событие пишется в user_outbox в той же транзакции, что и изменение users,
+ * другие сервисы читают события по возрастанию id начиная со своего смещения.
+ *
+ * Запись в outbox выполняется под транзакционной advisory-блокировкой, поэтому транзакции
+ * с событиями фиксируются строго в порядке id и читатель не пропускает событие с меньшим id,
+ * зафиксированное позже. Изменения пользователей редки, очередь на блокировке не заметна.
+ *
+ * Outbox уплотняется как журнал с ключом user_id: событие старше users.events.retention удаляется,
+ * если у пользователя есть более позднее событие, а событие удаления - просто по возрасту.
+ * Читатель, начавший с нуля, по-прежнему получает текущее состояние всех пользователей;
+ * читатель, отставший больше чем на retention, может пропустить удаления и должен перечитать поток с нуля.
+ */
+@Service
+public class UserOutbox {
+    private static final Logger log = LoggerFactory.getLogger(UserOutbox.class);
+
+    private static final long OUTBOX_LOCK_KEY = 0x7573725f6f7574L;
+
+    private static final String COMPACT_QUERY =
+            "DELETE FROM user_outbox WHERE id IN (" +
+            "SELECT o.id FROM user_outbox o WHERE o.created_at < now() - ? * interval '1 second' " +
+            "AND (o.event_type = ? OR EXISTS (SELECT 1 FROM user_outbox n WHERE n.user_id = o.user_id AND n.id > o.id)) " +
+            "ORDER BY o.id LIMIT ?)";
+
+    private static final String INSERT_QUERY =
+            "INSERT INTO user_outbox (event_type, user_id, email, first_name, last_name, role, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, now())";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int maxPageSize;
+    private final Duration retention;
+    private final int cleanupBatchSize;
+
+    public UserOutbox(JdbcTemplate jdbcTemplate,
+                      @Value("${users.events.max-size:1000}") int maxPageSize,
+                      @Value("${users.events.retention:P7D}") Duration retention,
+                      @Value("${users.events.cleanup-batch-size:1000}") int cleanupBatchSize)
+    {
+        this.jdbcTemplate = jdbcTemplate;
+        this.maxPageSize = maxPageSize;
+        this.retention = retention;
+        this.cleanupBatchSize = cleanupBatchSize;
+    }
+
+    /**
+     * Событие создания или изменения пользователя. Должно вызываться внутри транзакции изменения.
+     * @param user Сохранённый пользователь
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void upserted(User user)
+    {
+        lock();
+        jdbcTemplate.update(INSERT_QUERY, UserEvent.UPSERTED, user.getId(), user.getEmail(),
+                user.getFirst_name(), user.getLast_name(), user.getRole().name());
+    }
+
+    /**
+     * События создания пользователей по списку email, для пакетного импорта.
+     * Должно вызываться внутри транзакции вставки.
+     * @param emails Email вставленных пользователей
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void upsertedByEmails(List<String> emails)
+    {
+        if(emails.isEmpty())
+        {
+            return;
+        }
+
+        lock();
+        jdbcTemplate.update(connection -> {
+            var statement = connection.prepareStatement(
+                    "INSERT INTO user_outbox (event_type, user_id, email, first_name, last_name, role, created_at) " +
+                    "SELECT ?, id, email, first_name, last_name, role, now() FROM users " +
+                    "WHERE lower(email) = ANY (?) ORDER BY id");
+            statement.setString(1, UserEvent.UPSERTED);
+            statement.setArray(2, connection.createArrayOf("varchar",
+                    emails.stream().map(String::toLowerCase).toArray()));
+            return statement;
+        });
+    }
+
+    /**
+     * Событие удаления пользователя. Должно вызываться внутри транзакции удаления.
+     * @param userId ID пользователя
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void deleted(Long userId)
+    {
+        lock();
+        jdbcTemplate.update(INSERT_QUERY, UserEvent.DELETED, userId, null, null, null, null);
+    }
+
+    /**
+     * События после указанного смещения.
+     * @param after ID последнего обработанного события, 0 для чтения с начала
+     * @param limit Размер страницы, ограничивается сверху users.events.max-size
+     * @return События по возрастанию id
+     */
+    public List<UserEvent> after(long after, int limit)
+    {
+        int size = Math.max(1, Math.min(limit, maxPageSize));
+        return jdbcTemplate.query(
+                "SELECT id, event_type, user_id, email, first_name, last_name, role FROM user_outbox " +
+                "WHERE id > ? ORDER BY id LIMIT ?",
+                (resultSet, rowNum) -> new UserEvent(
+                        resultSet.getLong("id"),
+                        resultSet.getString("event_type"),
+                        resultSet.getLong("user_id"),
+                        resultSet.getString("email"),
+                        resultSet.getString("first_name"),
+                        resultSet.getString("last_name"),
+                        resultSet.getString("role")),
+                after, size);
+    }
+
+    /**
+     * Уплотнение outbox пачками по users.events.cleanup-batch-size, чтобы не держать длинную транзакцию.
+     */
+    @Scheduled(fixedDelayString = "${users.events.cleanup-interval:PT1H}")
+    public void compact()
+    {
+        int total = 0;
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update(COMPACT_QUERY, retention.toSeconds(), UserEvent.DELETED, cleanupBatchSize);
+            total += deleted;
+        } while(deleted == cleanupBatchSize);
+
+        if(total > 0)
+        {
+            log.info("User outbox compacted: {} events removed", total);
+        }
+    }
+
+    private void lock()
+    {
+        jdbcTemplate.queryForObject("SELECT pg_advisory_xact_lock(?)::text", String.class, OUTBOX_LOCK_KEY);
+    }
+}
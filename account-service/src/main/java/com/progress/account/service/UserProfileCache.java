@@ -0,0 +1,51 @@
+package com.progress.account.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.progress.account.dto.UserProfile;
+import com.progress.account.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Кеш профилей пользователей по ID со сквозным чтением из БД.
+ * Профиль читается намного чаще, чем изменяется, поэтому запись сбрасывается только
+ * при изменении или удалении пользователя.
+ */
+@Component
+public class UserProfileCache {
+    private final UserRepository userRepository;
+    private final Cache<Long, UserProfile> cache;
+
+    public UserProfileCache(UserRepository userRepository,
+                            @Value("${users.profile-cache.max-size:50000}") long maxSize,
+                            @Value("${users.profile-cache.ttl:PT1H}") Duration ttl)
+    {
+        this.userRepository = userRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * Получение профиля пользователя.
+     * @param id ID пользователя
+     * @return Профиль или null, если пользователь не найден
+     */
+    public UserProfile get(Long id)
+    {
+        return cache.get(id, key -> userRepository.findById(key).map(UserProfile::of).orElse(null));
+    }
+
+    /**
+     * Сброс профиля после изменения или удаления пользователя.
+     * @param id ID пользователя
+     */
+    public void invalidate(Long id)
+    {
+        cache.invalidate(id);
+    }
+}
@@ -0,0 +1,171 @@
+package com.progress.account.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.progress.account.dto.UserPage;
+import com.progress.account.dto.UserSummary;
+import com.progress.account.model.Role;
+import com.progress.account.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+
+@Service
+public class UserService {
+    // Ограничение на количество параметров в одном IN (...) запросе
+    private static final int LOOKUP_CHUNK_SIZE = 1000;
+
+    private static final String EXPORT_QUERY =
+            "SELECT id, email, first_name, last_name, role FROM users ORDER BY id";
+
+    private final UserRepository userRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ObjectMapper objectMapper;
+    private final int maxLookupSize;
+    private final int maxPageSize;
+    private final int exportFetchSize;
+
+    public UserService(UserRepository userRepository,
+                       JdbcTemplate jdbcTemplate,
+                       PlatformTransactionManager transactionManager,
+                       ObjectMapper objectMapper,
+                       @Value("${users.lookup.max-size:10000}") int maxLookupSize,
+                       @Value("${users.page.max-size:500}") int maxPageSize,
+                       @Value("${users.export.fetch-size:1000}") int exportFetchSize)
+    {
+        this.userRepository = userRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        this.maxLookupSize = maxLookupSize;
+        this.maxPageSize = maxPageSize;
+        this.exportFetchSize = exportFetchSize;
+    }
+
+    /**
+     * Получение страницы пользователей после указанного ID (keyset-пагинация).
+     * @param cursor ID последнего пользователя предыдущей страницы, 0 для первой страницы
+     * @param limit Размер страницы, ограничивается сверху users.page.max-size
+     * @return Страница пользователей и курсор следующей страницы
+     */
+    public UserPage page(long cursor, int limit)
+    {
+        int size = Math.max(1, Math.min(limit, maxPageSize));
+        List<UserSummary> users = userRepository.findPageAfter(cursor, PageRequest.of(0, size));
+
+        Long nextCursor = users.size() == size ? users.get(users.size() - 1).getId() : null;
+        return new UserPage(users, nextCursor);
+    }
+
+    /**
+     * Поиск пользователей по email, имени и фамилии без учёта регистра с keyset-пагинацией.
+     * Запрос от трёх символов ищется как подстрока по триграммным индексам,
+     * более короткий - как префикс, потому что для одного-двух символов триграмм нет.
+     * @param query Строка поиска
+     * @param role Роль для фильтрации или null
+     * @param cursor ID последнего пользователя предыдущей страницы, 0 для первой страницы
+     * @param limit Размер страницы, ограничивается сверху users.page.max-size
+     * @return Страница найденных пользователей, упорядоченных по ID
+     * @throws IllegalArgumentException если строка поиска пустая
+     */
+    public UserPage search(String query, Role role, long cursor, int limit)
+    {
+        if(query == null || query.isBlank())
+        {
+            throw new IllegalArgumentException("Строка поиска не может быть пустой");
+        }
+
+        String term = escapeLike(query.strip().toLowerCase(Locale.ROOT));
+        String pattern = query.strip().length() >= 3 ? "%" + term + "%" : term + "%";
+
+        int size = Math.max(1, Math.min(limit, maxPageSize));
+        List<UserSummary> users = userRepository.searchAfter(pattern, role != null ? role.name() : null,
+                cursor, PageRequest.of(0, size));
+
+        Long nextCursor = users.size() == size ? users.get(users.size() - 1).getId() : null;
+        return new UserPage(users, nextCursor);
+    }
+
+    private static String escapeLike(String value)
+    {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    /**
+     * Потоковая выгрузка всех пользователей в формате NDJSON (один JSON объект на строку).
+     * Строки читаются серверным курсором порциями по users.export.fetch-size,
+     * поэтому расход памяти не зависит от количества пользователей.
+     * @param out Поток ответа
+     */
+    public void export(OutputStream out) throws IOException
+    {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // Строки разделяются только переводом строки, без пробела по умолчанию между корневыми значениями
+            generator.setRootValueSeparator(null);
+
+            // Курсор PostgreSQL работает только внутри транзакции
+            readOnlyTransaction.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(EXPORT_QUERY,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(exportFetchSize);
+                return statement;
+            }, resultSet -> {
+                try {
+                    generator.writeStartObject();
+                    generator.writeNumberField("id", resultSet.getLong("id"));
+                    generator.writeStringField("email", resultSet.getString("email"));
+                    generator.writeStringField("firstName", resultSet.getString("first_name"));
+                    generator.writeStringField("lastName", resultSet.getString("last_name"));
+                    generator.writeStringField("role", resultSet.getString("role"));
+                    generator.writeEndObject();
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        }
+    }
+
+    /**
+     * Получение краткой информации о пользователях по списку ID.
+     * Повторяющиеся ID отбрасываются, большие списки запрашиваются частями.
+     * Несуществующие ID в ответ не попадают.
+     * @param ids Список ID пользователей
+     * @return Список id, email, имени, фамилии и роли пользователей
+     */
+    public List<UserSummary> lookup(Collection<Long> ids)
+    {
+        List<Long> uniqueIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        uniqueIds.removeIf(id -> id == null);
+
+        if(uniqueIds.size() > maxLookupSize)
+        {
+            throw new IllegalArgumentException("Превышено максимальное количество ID: " + maxLookupSize);
+        }
+
+        List<UserSummary> users = new ArrayList<>(uniqueIds.size());
+        for(int from = 0; from < uniqueIds.size(); from += LOOKUP_CHUNK_SIZE)
+        {
+            int to = Math.min(uniqueIds.size(), from + LOOKUP_CHUNK_SIZE);
+            users.addAll(userRepository.findSummariesByIdIn(uniqueIds.subList(from, to)));
+        }
+        return users;
+    }
+}
@@ -0,0 +1,92 @@
+-- Выполняется после обновления схемы Hibernate (spring.jpa.defer-datasource-initialization)
+-- целиком одним запросом (spring.sql.init.separator), поэтому блоки DO $$ ... $$ не разбиваются по ';'
+
+-- Email уникален без учёта регистра, по этому же индексу выполняется поиск при входе.
+-- Индекс не создаётся, если в users уже есть email, совпадающие без учёта регистра: запуск прерывается
+-- ошибкой со списком таких email. Дубли нужно разрешить вручную (объединить учётные записи или изменить email),
+-- найти их можно запросом: SELECT lower(email), array_agg(id) FROM users GROUP BY lower(email) HAVING count(*) > 1
+DO $$
+DECLARE
+    duplicates TEXT;
+BEGIN
+    SELECT string_agg(email_lower, ', ') INTO duplicates
+    FROM (SELECT lower(email) AS email_lower FROM users GROUP BY lower(email) HAVING count(*) > 1) d;
+    IF duplicates IS NOT NULL THEN
+        RAISE EXCEPTION 'Найдены email, совпадающие без учёта регистра, уникальный индекс ux_users_email_lower не создан: %',
+            duplicates;
+    END IF;
+END
+$$;
+CREATE UNIQUE INDEX IF NOT EXISTS ux_users_email_lower ON users (lower(email));
+
+-- Отозванные токены по jti, строки удаляются после истечения токена
+CREATE TABLE IF NOT EXISTS revoked_tokens (
+    jti        VARCHAR(36) PRIMARY KEY,
+    user_id    BIGINT,
+    expires_at TIMESTAMP NOT NULL,
+    revoked_at TIMESTAMP NOT NULL
+);
+CREATE INDEX IF NOT EXISTS ix_revoked_tokens_revoked_at ON revoked_tokens (revoked_at);
+
+-- Все токены пользователя, выданные не позже not_before_ms (миллисекунды Unix), считаются отозванными
+CREATE TABLE IF NOT EXISTS user_token_epochs (
+    user_id       BIGINT PRIMARY KEY,
+    not_before_ms BIGINT NOT NULL,
+    updated_at    TIMESTAMP NOT NULL
+);
+-- Переход с секунд: момент отзыва сдвигается на конец секунды, чтобы не вернуть в оборот отозванные токены
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_name = 'user_token_epochs' AND column_name = 'not_before') THEN
+        ALTER TABLE user_token_epochs RENAME COLUMN not_before TO not_before_ms;
+        UPDATE user_token_epochs SET not_before_ms = not_before_ms * 1000 + 999;
+    END IF;
+END
+$$;
+
+-- Поиск пользователей администратором: триграммы для подстроки от трёх символов,
+-- text_pattern_ops для префикса из одного-двух символов
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX IF NOT EXISTS ix_users_email_trgm ON users USING gin (lower(email) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS ix_users_first_name_trgm ON users USING gin (lower(first_name) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS ix_users_last_name_trgm ON users USING gin (lower(last_name) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS ix_users_email_prefix ON users (lower(email) text_pattern_ops);
+CREATE INDEX IF NOT EXISTS ix_users_first_name_prefix ON users (lower(first_name) text_pattern_ops);
+CREATE INDEX IF NOT EXISTS ix_users_last_name_prefix ON users (lower(last_name) text_pattern_ops);
+
+-- Refresh токены: хранится только SHA-256, family_id связывает токены одной цепочки ротации
+CREATE TABLE IF NOT EXISTS refresh_tokens (
+    token_hash VARCHAR(43) PRIMARY KEY,
+    family_id  VARCHAR(36) NOT NULL,
+    user_id    BIGINT NOT NULL,
+    expires_at TIMESTAMP NOT NULL,
+    used_at    TIMESTAMP,
+    revoked    BOOLEAN NOT NULL,
+    created_at TIMESTAMP NOT NULL
+);
+-- Предельный срок цепочки от входа, копируется в каждый токен цепочки при ротации
+ALTER TABLE refresh_tokens ADD COLUMN IF NOT EXISTS family_expires_at TIMESTAMP;
+UPDATE refresh_tokens SET family_expires_at = expires_at WHERE family_expires_at IS NULL;
+ALTER TABLE refresh_tokens ALTER COLUMN family_expires_at SET NOT NULL;
+CREATE INDEX IF NOT EXISTS ix_refresh_tokens_family ON refresh_tokens (family_id);
+CREATE INDEX IF NOT EXISTS ix_refresh_tokens_user ON refresh_tokens (user_id);
+CREATE INDEX IF NOT EXISTS ix_refresh_tokens_expires_at ON refresh_tokens (expires_at);
+
+-- Transactional outbox изменений пользователей, читается school-service через GET /events
+CREATE TABLE IF NOT EXISTS user_outbox (
+    id          BIGSERIAL PRIMARY KEY,
+    event_type  VARCHAR(16) NOT NULL,
+    user_id     BIGINT NOT NULL,
+    email       VARCHAR(255),
+    first_name  VARCHAR(255),
+    last_name   VARCHAR(255),
+    role        VARCHAR(32),
+    created_at  TIMESTAMP NOT NULL
+);
+-- Первый запуск: текущее состояние users записывается в outbox, чтобы читатели могли начать с нуля
+INSERT INTO user_outbox (event_type, user_id, email, first_name, last_name, role, created_at)
+SELECT 'UPSERTED', id, email, first_name, last_name, role, now() FROM users
+WHERE NOT EXISTS (SELECT 1 FROM user_outbox) ORDER BY id;
+-- Поиск более поздних событий пользователя при уплотнении outbox
+CREATE INDEX IF NOT EXISTS ix_user_outbox_user_id ON user_outbox (user_id, id);
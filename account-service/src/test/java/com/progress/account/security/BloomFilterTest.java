@@ -0,0 +1,57 @@
+package com.progress.account.security;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BloomFilterTest {
+    private static final int INSERTIONS = 10_000;
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    @Test
+    void addedKeysAreAlwaysFound()
+    {
+        BloomFilter filter = new BloomFilter(INSERTIONS, FALSE_POSITIVE_RATE);
+        for(int i = 0; i < INSERTIONS; i++)
+        {
+            filter.put("jti-" + i);
+        }
+
+        for(int i = 0; i < INSERTIONS; i++)
+        {
+            assertTrue(filter.mightContain("jti-" + i));
+        }
+    }
+
+    @Test
+    void falsePositiveRateStaysNearConfigured()
+    {
+        BloomFilter filter = new BloomFilter(INSERTIONS, FALSE_POSITIVE_RATE);
+        for(int i = 0; i < INSERTIONS; i++)
+        {
+            filter.put("jti-" + i);
+        }
+
+        int probes = 100_000;
+        int falsePositives = 0;
+        for(int i = 0; i < probes; i++)
+        {
+            if(filter.mightContain("other-" + i))
+            {
+                falsePositives++;
+            }
+        }
+        // С запасом вдвое: доля случайна, но при заполнении до expectedInsertions не должна уходить далеко
+        assertTrue(falsePositives < probes * FALSE_POSITIVE_RATE * 2, "false positives: " + falsePositives);
+    }
+
+    @Test
+    void emptyFilterContainsNothing()
+    {
+        BloomFilter filter = new BloomFilter(INSERTIONS, FALSE_POSITIVE_RATE);
+
+        assertFalse(filter.mightContain("jti-0"));
+        assertFalse(filter.mightContain(""));
+    }
+}
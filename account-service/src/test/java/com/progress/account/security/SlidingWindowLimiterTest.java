@@ -0,0 +1,97 @@
+package com.progress.account.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SlidingWindowLimiterTest {
+    private static final long WINDOW = 60_000;
+
+    private final AtomicLong clock = new AtomicLong(1_000_000);
+
+    @Test
+    void rejectsAfterMaxAttemptsUntilOldestLeavesWindow()
+    {
+        SlidingWindowLimiter limiter = new SlidingWindowLimiter(3, WINDOW, 4, 16, clock::get);
+
+        assertEquals(0, limiter.tryAcquire("a"));
+        clock.addAndGet(10_000);
+        assertEquals(0, limiter.tryAcquire("a"));
+        assertEquals(0, limiter.tryAcquire("a"));
+        assertEquals(WINDOW - 10_000, limiter.tryAcquire("a"));
+
+        clock.addAndGet(WINDOW - 10_000);
+        assertEquals(0, limiter.tryAcquire("a"));
+        assertTrue(limiter.tryAcquire("a") > 0);
+    }
+
+    @Test
+    void rejectionBySecondLimiterDoesNotConsumeFirst()
+    {
+        SlidingWindowLimiter ip = new SlidingWindowLimiter(2, WINDOW, 4, 16, clock::get);
+        SlidingWindowLimiter email = new SlidingWindowLimiter(1, WINDOW, 4, 16, clock::get);
+
+        assertEquals(0, SlidingWindowLimiter.tryAcquire(ip, "10.0.0.1", email, "locked@example.com"));
+        assertTrue(SlidingWindowLimiter.tryAcquire(ip, "10.0.0.1", email, "locked@example.com") > 0);
+        assertTrue(SlidingWindowLimiter.tryAcquire(ip, "10.0.0.1", email, "locked@example.com") > 0);
+
+        // Отказы по email не израсходовали второй слот IP
+        assertEquals(0, SlidingWindowLimiter.tryAcquire(ip, "10.0.0.1", email, "other@example.com"));
+    }
+
+    @Test
+    void nullKeyIsNotChecked()
+    {
+        SlidingWindowLimiter ip = new SlidingWindowLimiter(1, WINDOW, 4, 16, clock::get);
+        SlidingWindowLimiter email = new SlidingWindowLimiter(1, WINDOW, 4, 16, clock::get);
+
+        assertEquals(0, SlidingWindowLimiter.tryAcquire(ip, null, email, "a@example.com"));
+        assertEquals(0, SlidingWindowLimiter.tryAcquire(ip, "10.0.0.1", email, null));
+        assertTrue(SlidingWindowLimiter.tryAcquire(ip, "10.0.0.1", email, null) > 0);
+    }
+
+    @Test
+    void fullStripeStillAdmitsNewKeys()
+    {
+        SlidingWindowLimiter limiter = new SlidingWindowLimiter(1, WINDOW, 1, 4, clock::get);
+
+        for(int i = 0; i < 100; i++)
+        {
+            assertEquals(0, limiter.tryAcquire("key" + i));
+        }
+    }
+
+    @Test
+    void floodOfNewKeysDoesNotResetLockedKey()
+    {
+        SlidingWindowLimiter limiter = new SlidingWindowLimiter(2, WINDOW, 1, 4, clock::get);
+
+        assertEquals(0, limiter.tryAcquire("victim"));
+        assertEquals(0, limiter.tryAcquire("victim"));
+        assertTrue(limiter.tryAcquire("victim") > 0);
+
+        // Новые ключи с одной попыткой вытесняют друг друга, а не заблокированный ключ
+        for(int i = 0; i < 1000; i++)
+        {
+            clock.incrementAndGet();
+            limiter.tryAcquire("flood" + i);
+        }
+        assertTrue(limiter.tryAcquire("victim") > 0);
+    }
+
+    @Test
+    void idleKeysAreEvictedFirst()
+    {
+        SlidingWindowLimiter limiter = new SlidingWindowLimiter(1, WINDOW, 1, 2, clock::get);
+
+        assertEquals(0, limiter.tryAcquire("old"));
+        clock.addAndGet(WINDOW);
+        assertEquals(0, limiter.tryAcquire("locked"));
+        assertEquals(0, limiter.tryAcquire("new"));
+
+        assertTrue(limiter.tryAcquire("locked") > 0);
+    }
+}
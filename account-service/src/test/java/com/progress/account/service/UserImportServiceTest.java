@@ -0,0 +1,37 @@
+package com.progress.account.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class UserImportServiceTest {
+    @Test
+    void splitsPlainValues()
+    {
+        assertEquals(List.of("a@example.com", "secret", "Анна", "Иванова", "teacher"),
+                UserImportService.splitCsv("a@example.com,secret,Анна,Иванова,teacher"));
+        assertEquals(List.of("", "", ""), UserImportService.splitCsv(",,"));
+    }
+
+    @Test
+    void quotedValuesKeepCommasAndQuotes()
+    {
+        assertEquals(List.of("a@example.com", "p,a\"ss", "Анна", "Иванова", "teacher"),
+                UserImportService.splitCsv("a@example.com,\"p,a\"\"ss\",Анна,Иванова,teacher"));
+        assertEquals(List.of("", "x"), UserImportService.splitCsv("\"\",x"));
+    }
+
+    @Test
+    void rejectsMalformedQuotes()
+    {
+        assertThrows(UserImportService.MalformedCsvException.class,
+                () -> UserImportService.splitCsv("a@example.com,\"secret,Анна"));
+        assertThrows(UserImportService.MalformedCsvException.class,
+                () -> UserImportService.splitCsv("a@example.com,\"sec\"ret,Анна"));
+        assertThrows(UserImportService.MalformedCsvException.class,
+                () -> UserImportService.splitCsv("a@example.com,sec\"ret\",Анна"));
+    }
+}
@@ -167,7 +167,7 @@ public class DocumentController {
         Document document = documentRepository.findById(id)
                 .orElseThrow(() -> new UsernameNotFoundException("Документ не найден"));
 
-        documentRepository.delete(document);
+        documentService.deleteDocument(document);
 
         return ResponseEntity.ok("Документ удален");
     }
@@ -224,6 +224,17 @@ public class DocumentController {
         return ResponseEntity.ok(documentRepository.findAllBySchoolId(id));
     }
 
+    @GetMapping("/documents/attendance-counts")
+    @Operation(summary = "Посещаемость по школам и дням",
+        description = "Возвращает количество отметок PRESENT и ABSENT по школам и дням начиная с указанной даты. " +
+                "Используется school-service для сверки статистики, требуется заголовок X-Service-Token.")
+    public ResponseEntity<?> countAttendance(@Parameter(description = "Начальная дата (формат yyyy-MM-dd)")
+                                             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+                                                @RequestParam("from") LocalDate from)
+    {
+        return ResponseEntity.ok(documentRepository.countAttendanceSince(from));
+    }
+
     @GetMapping("/documents/check-attendance")
     @Operation(summary = "Проверка присутствия ученика",
         description = "Проверяет, присутствовал ли ученик в указанный день. Доступно ученикам и преподавателям")
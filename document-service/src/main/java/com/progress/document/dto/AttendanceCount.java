@@ -0,0 +1,10 @@
+package com.progress.document.dto;
+
+import java.time.LocalDate;
+
+public interface AttendanceCount {
+    Long getSchoolId();
+    LocalDate getDate();
+    long getPresent();
+    long getAbsent();
+}
@@ -0,0 +1,47 @@
+package com.progress.document.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDate;
+
+// Изменение отметок посещаемости школы за день, ожидающее отправки в school-service
+@Entity
+@Table(name = "stats_outbox")
+public class StatsOutboxEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, name = "school_id")
+    private Long schoolId;
+
+    @Column(nullable = false)
+    private LocalDate date;
+
+    @Column(nullable = false)
+    private Long present;
+
+    @Column(nullable = false)
+    private Long absent;
+
+    public StatsOutboxEntry() {}
+
+    public StatsOutboxEntry(Long schoolId, LocalDate date, Long present, Long absent)
+    {
+        this.schoolId = schoolId;
+        this.date = date;
+        this.present = present;
+        this.absent = absent;
+    }
+
+    public Long getId() { return id; }
+
+    public Long getSchoolId() { return schoolId; }
+
+    public LocalDate getDate() { return date; }
+
+    public Long getPresent() { return present; }
+
+    public Long getAbsent() { return absent; }
+}
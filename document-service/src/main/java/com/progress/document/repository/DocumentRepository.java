@@ -1,7 +1,10 @@
 package com.progress.document.repository;
 
+import com.progress.document.dto.AttendanceCount;
 import com.progress.document.model.Document;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -11,4 +14,12 @@ public interface DocumentRepository extends JpaRepository<Document, Long> {
     List<Document> findAllByUserId(Long user_id);
     List<Document> findAllBySchoolId(Long school_id);
     Optional<Document> findByUserIdAndDate(Long userId, LocalDate date);
+
+    // Отметки посещаемости по школам и дням начиная с даты, для сверки статистики в school-service
+    @Query(value = "SELECT school_id AS \"schoolId\", date AS \"date\", " +
+            "count(*) FILTER (WHERE status = 'PRESENT') AS \"present\", " +
+            "count(*) FILTER (WHERE status = 'ABSENT') AS \"absent\" " +
+            "FROM documents WHERE date >= :from AND school_id IS NOT NULL GROUP BY school_id, date",
+            nativeQuery = true)
+    List<AttendanceCount> countAttendanceSince(@Param("from") LocalDate from);
 }
@@ -4,13 +4,17 @@ import com.progress.document.dto.CreateRequest;
 import com.progress.document.model.Document;
 import com.progress.document.repository.DocumentRepository;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class DocumentService {
     private final DocumentRepository documentRepository;
+    private final SchoolStatsClient schoolStatsClient;
 
-    public DocumentService(DocumentRepository documentRepository)
+    public DocumentService(DocumentRepository documentRepository,
+                           SchoolStatsClient schoolStatsClient)
     {
+        this.schoolStatsClient = schoolStatsClient;
         this.documentRepository = documentRepository;
     }
 
@@ -18,6 +22,7 @@ public class DocumentService {
      * Создает новый документ.
      * @param request Объект с данными документа
      */
+    @Transactional
     public void createDocument(CreateRequest request)
     {
         Document document = new Document();
@@ -31,6 +36,7 @@ public class DocumentService {
         document.setNotes(request.getNotes());
 
         documentRepository.save(document);
+        schoolStatsClient.attendanceChanged(null, SchoolStatsClient.Mark.of(document));
     }
 
     /**
@@ -38,10 +44,12 @@ public class DocumentService {
      * @param id ID документа
      * @param request Объект с новыми данными документа
      */
+    @Transactional
     public void updateDocument(Long id, CreateRequest request)
     {
         Document document = documentRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Документ не найден"));
+        SchoolStatsClient.Mark previous = SchoolStatsClient.Mark.of(document);
 
         if(request.getUserId() != null) document.setUserId(request.getUserId());
         if(request.getSchoolId() != null) document.setSchoolId(request.getSchoolId());;
@@ -52,5 +60,17 @@ public class DocumentService {
         if(request.getNotes() != null) document.setNotes(request.getNotes());
 
         documentRepository.save(document);
+        schoolStatsClient.attendanceChanged(previous, SchoolStatsClient.Mark.of(document));
+    }
+
+    /**
+     * Удаление документа
+     * @param document Удаляемый документ
+     */
+    @Transactional
+    public void deleteDocument(Document document)
+    {
+        documentRepository.delete(document);
+        schoolStatsClient.attendanceChanged(SchoolStatsClient.Mark.of(document), null);
     }
 }
@@ -0,0 +1,150 @@
+package com.progress.document.service;
+
+import com.progress.document.model.Document;
+import com.progress.document.model.StatsOutboxEntry;
+import com.progress.document.model.Status;
+import com.progress.document.repository.StatsOutboxRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Сообщает school-service об изменении отметок посещаемости для счётчиков статистики.
+ * Изменения записываются в stats_outbox в транзакции вызывающего кода, а отправляются фоновой задачей
+ * раз в stats.outbox.publish-interval, поэтому запрос не ждёт school-service, а изменения откатанной
+ * транзакции не отправляются. Если school-service недоступен, записи остаются в stats_outbox
+ * до следующей попытки; расхождения всё равно устраняет сверка с GET /api/v1/documents/attendance-counts.
+ */
+@Service
+public class SchoolStatsClient {
+    private static final Logger log = LoggerFactory.getLogger(SchoolStatsClient.class);
+
+    private final StatsOutboxRepository statsOutboxRepository;
+    private final RestTemplate restTemplate;
+    private final String serviceToken;
+    private final int batchSize;
+
+    public SchoolStatsClient(StatsOutboxRepository statsOutboxRepository,
+                             @Value("${security.service-token:}") String serviceToken,
+                             @Value("${stats.outbox.batch-size:500}") int batchSize)
+    {
+        this.statsOutboxRepository = statsOutboxRepository;
+        this.serviceToken = serviceToken;
+        this.batchSize = batchSize;
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(Duration.ofSeconds(1));
+        requestFactory.setReadTimeout(Duration.ofSeconds(2));
+        this.restTemplate = new RestTemplate(requestFactory);
+    }
+
+    /**
+     * Запись изменения отметки в stats_outbox в текущей транзакции: старая отметка вычитается, новая прибавляется.
+     * @param removed Отметка до изменения или null для нового документа
+     * @param added Отметка после изменения или null для удалённого документа
+     */
+    @Transactional
+    public void attendanceChanged(Mark removed, Mark added)
+    {
+        if(Objects.equals(removed, added))
+        {
+            return;
+        }
+
+        List<StatsOutboxEntry> entries = new ArrayList<>();
+        if(removed != null && removed.isComplete()) entries.add(removed.entry(-1));
+        if(added != null && added.isComplete()) entries.add(added.entry(1));
+        if(!entries.isEmpty())
+        {
+            statsOutboxRepository.saveAll(entries);
+        }
+    }
+
+    /**
+     * Отправка накопленных изменений пачкой не больше stats.outbox.batch-size записей.
+     * Записи удаляются только после успешного ответа school-service.
+     */
+    @Scheduled(fixedDelayString = "${stats.outbox.publish-interval:PT1S}")
+    @Transactional
+    public void publish()
+    {
+        List<StatsOutboxEntry> entries = statsOutboxRepository.lockOldest(batchSize);
+        if(entries.isEmpty())
+        {
+            return;
+        }
+
+        // Школа и день -> {present, absent}
+        Map<List<Object>, long[]> counts = new LinkedHashMap<>();
+        for(StatsOutboxEntry entry : entries)
+        {
+            long[] count = counts.computeIfAbsent(List.of(entry.getSchoolId(), entry.getDate()), key -> new long[2]);
+            count[0] += entry.getPresent();
+            count[1] += entry.getAbsent();
+        }
+        List<Map<String, Object>> deltas = counts.entrySet().stream()
+                .filter(entry -> entry.getValue()[0] != 0 || entry.getValue()[1] != 0)
+                .map(entry -> Map.<String, Object>of(
+                        "schoolId", entry.getKey().get(0),
+                        "date", entry.getKey().get(1).toString(),
+                        "present", entry.getValue()[0],
+                        "absent", entry.getValue()[1]))
+                .toList();
+
+        try {
+            if(!deltas.isEmpty())
+            {
+                send(deltas);
+            }
+            statsOutboxRepository.deleteAllInBatch(entries);
+        } catch (Exception e) {
+            log.warn("Attendance stats were not sent, will retry: {}", e.getMessage());
+        }
+    }
+
+    private void send(List<Map<String, Object>> deltas)
+    {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set("X-Service-Token", serviceToken);
+        restTemplate.exchange(
+                "http://school-service:8081/api/v1/schools/stats/deltas",
+                HttpMethod.POST,
+                new HttpEntity<>(deltas, headers),
+                Void.class
+        );
+    }
+
+    // Школа, дата и статус документа - всё, что влияет на счётчики посещаемости
+    public record Mark(Long schoolId, LocalDate date, Status status) {
+        public static Mark of(Document document) {
+            return new Mark(document.getSchoolId(), document.getDate(), document.getStatus());
+        }
+
+        boolean isComplete() {
+            return schoolId != null && date != null && status != null;
+        }
+
+        StatsOutboxEntry entry(long sign) {
+            return new StatsOutboxEntry(schoolId, date,
+                    status == Status.PRESENT ? sign : 0,
+                    status == Status.ABSENT ? sign : 0);
+        }
+    }
+}
@@ -2,8 +2,10 @@ package com.progress.school;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class SchoolServiceApplication {
     public static void main(String[] args) {
         SpringApplication.run(SchoolServiceApplication.class, args);
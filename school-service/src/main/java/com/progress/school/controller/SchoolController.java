@@ -1,25 +1,37 @@
 package com.progress.school.controller;
 
 import com.progress.school.dto.CreateRequest;
+import com.progress.school.dto.MembershipCheck;
+import com.progress.school.dto.SchoolStats;
+import com.progress.school.dto.SchoolSummary;
+import com.progress.school.dto.StatsDelta;
 import com.progress.school.dto.StudentInfo;
 import com.progress.school.dto.TeacherInfo;
-import com.progress.school.model.School;
+import com.progress.school.dto.UserMemberships;
 import com.progress.school.repository.SchoolRepository;
 import com.progress.school.repository.SchoolTeacherRepository;
+import com.progress.school.service.EnrollmentService;
+import com.progress.school.service.MembershipIndex;
+import com.progress.school.service.MembershipService;
+import com.progress.school.service.RosterService;
+import com.progress.school.service.SchoolCatalogCache;
 import com.progress.school.service.SchoolService;
+import com.progress.school.service.SchoolStatsService;
 import com.progress.school.service.ValidateTokenService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -32,16 +44,31 @@ public class SchoolController {
     private final SchoolTeacherRepository schoolTeacherRepository;
     private final SchoolService schoolService;
     private final ValidateTokenService validateTokenService;
+    private final SchoolCatalogCache schoolCatalogCache;
+    private final MembershipService membershipService;
+    private final RosterService rosterService;
+    private final EnrollmentService enrollmentService;
+    private final SchoolStatsService schoolStatsService;
 
     public SchoolController(
             SchoolRepository schoolRepository,
             SchoolService schoolService,
             ValidateTokenService validateTokenService,
-            SchoolTeacherRepository schoolTeacherRepository) {
+            SchoolTeacherRepository schoolTeacherRepository,
+            SchoolCatalogCache schoolCatalogCache,
+            MembershipService membershipService,
+            RosterService rosterService,
+            EnrollmentService enrollmentService,
+            SchoolStatsService schoolStatsService) {
+        this.schoolStatsService = schoolStatsService;
+        this.enrollmentService = enrollmentService;
+        this.rosterService = rosterService;
         this.schoolRepository = schoolRepository;
         this.schoolTeacherRepository = schoolTeacherRepository;
         this.schoolService = schoolService;
         this.validateTokenService = validateTokenService;
+        this.schoolCatalogCache = schoolCatalogCache;
+        this.membershipService = membershipService;
     }
 
     private Map<String, Object> extractUser(HttpServletRequest request)
@@ -82,16 +109,32 @@ public class SchoolController {
 
     @GetMapping("/schools")
     @Operation(
-        summary = "Получение всех школ",
-        description = "Возвращает список всех школ"
+        summary = "Получение списка школ",
+        description = "Без параметров возвращает ID, название и адрес всех школ. " +
+                "С параметрами q, cursor или limit возвращает страницу школ, упорядоченных по ID, " +
+                "с поиском по префиксу названия или адреса. Для следующей страницы передайте nextCursor из ответа."
     )
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Список школы получен"),
             @ApiResponse(responseCode = "404", description = "Не удалось получить список школ")
     })
-    public ResponseEntity<?> getAllSchools()
+    public ResponseEntity<?> getAllSchools(@Parameter(description = "Префикс названия или адреса")
+                                               @RequestParam(name = "q", required = false) String query,
+                                           @Parameter(description = "ID последней школы предыдущей страницы")
+                                               @RequestParam(name = "cursor", required = false) Long cursor,
+                                           @Parameter(description = "Размер страницы")
+                                               @RequestParam(name = "limit", required = false) Integer limit)
     {
-        return ResponseEntity.ok(schoolRepository.findAll());
+        if(query != null || cursor != null || limit != null)
+        {
+            return ResponseEntity.ok(schoolService.page(query,
+                    cursor != null ? cursor : 0,
+                    limit != null ? limit : 100));
+        }
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(schoolCatalogCache.catalogJson());
     }
 
     @GetMapping("/schools/{id}")
@@ -105,20 +148,14 @@ public class SchoolController {
     })
     public ResponseEntity<?> getSchoolById(@PathVariable(name = "id") Long id)
     {
-        School school = schoolRepository.findById(id)
-                .orElse(null);
+        SchoolSummary school = schoolCatalogCache.get(id);
 
         if(school == null)
         {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Школа не найдена");
         }
 
-        Map<String, Object> schoolInfo = new HashMap<>();
-        schoolInfo.put("id", id);
-        schoolInfo.put("name", school.getName());
-        schoolInfo.put("address", school.getAddress());
-
-        return ResponseEntity.ok(schoolInfo);
+        return ResponseEntity.ok(school);
     }
 
     @PutMapping("/schools/{id}")
@@ -183,35 +220,309 @@ public class SchoolController {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Недостаточно прав");
         }
 
-        School school = schoolRepository.findById(id)
-                .orElseThrow(() -> new UsernameNotFoundException("Школа не найдена"));
-
-        schoolRepository.delete(school);
+        schoolService.deleteSchool(id);
         return ResponseEntity.ok("Школа удалена");
     }
 
+    /**
+     * Проверка доступа к составу школы.
+     * Список учителей доступен любому пользователю с токеном, список учеников - всем, кроме учеников.
+     * @return Статус ошибки или null, если доступ разрешён
+     */
+    private HttpStatus checkRosterAccess(HttpServletRequest request, MembershipIndex.Kind kind)
+    {
+        Map<String, Object> userInfo = extractUser(request);
+        if(userInfo == null) return HttpStatus.UNAUTHORIZED;
+
+        if(kind == MembershipIndex.Kind.STUDENT && "STUDENT".equals(userInfo.get("role")))
+        {
+            return HttpStatus.FORBIDDEN;
+        }
+        return null;
+    }
+
+    private ResponseEntity<?> rosterPage(MembershipIndex.Kind kind, Long id, String cursor, int limit)
+    {
+        try {
+            return ResponseEntity.ok(rosterService.page(kind, id, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    private ResponseEntity<StreamingResponseBody> rosterExport(MembershipIndex.Kind kind, Long id,
+                                                               HttpServletRequest httpServletRequest)
+    {
+        HttpStatus denied = checkRosterAccess(httpServletRequest, kind);
+        if(denied != null)
+            return ResponseEntity.status(denied).build();
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(out -> rosterService.export(kind, id, out));
+    }
+
+    private ResponseEntity<?> rosterCount(MembershipIndex.Kind kind, Long id, HttpServletRequest httpServletRequest)
+    {
+        HttpStatus denied = checkRosterAccess(httpServletRequest, kind);
+        if(denied == HttpStatus.UNAUTHORIZED)
+            return ResponseEntity.status(denied).body("Невалидный или отсутствующий токен");
+        if(denied != null)
+            return ResponseEntity.status(denied).body("Недостаточно прав");
+
+        return ResponseEntity.ok(rosterService.count(kind, id));
+    }
+
     @GetMapping("/schools/{id}/teachers")
     @Operation(
         summary = "Получение списка учителей в школе",
-        description = "Возвращает список учителей, прикреплённых к указанной школе",
+        description = "Возвращает список учителей, прикреплённых к указанной школе. " +
+                "Если передан cursor или limit, возвращает страницу, упорядоченную по фамилии и ID; " +
+                "для следующей страницы передайте nextCursor из ответа.",
         security = @SecurityRequirement(name = "bearerAuth")
     )
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Список учителей получен"),
+        @ApiResponse(responseCode = "400", description = "Некорректный курсор"),
         @ApiResponse(responseCode = "401", description = "Отсутствует или недействительный токен"),
         @ApiResponse(responseCode = "404", description = "Школа с таким ID не найдена")
     })
     public ResponseEntity<?> getAllTeachersInSchoolId(@PathVariable(name = "id") Long id,
+                                                      @Parameter(description = "nextCursor предыдущей страницы")
+                                                      @RequestParam(name = "cursor", required = false) String cursor,
+                                                      @Parameter(description = "Размер страницы")
+                                                      @RequestParam(name = "limit", required = false) Integer limit,
                                                       HttpServletRequest httpServletRequest)
     {
         Map<String, Object> userInfo = extractUser(httpServletRequest);
         if(userInfo == null)
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Невалидный или отсутствующий токен");
 
+        if(cursor != null || limit != null)
+        {
+            return rosterPage(MembershipIndex.Kind.TEACHER, id, cursor, limit != null ? limit : 100);
+        }
+
         List<TeacherInfo> teachers = schoolTeacherRepository.findTeacherInfoBySchoolId(id);
         return ResponseEntity.ok(teachers);
     }
 
+    @GetMapping(value = "/schools/{id}/teachers/export", produces = "application/x-ndjson")
+    @Operation(
+        summary = "Потоковая выгрузка учителей школы",
+        description = "Возвращает учителей школы в формате NDJSON, по одному на строку, в порядке фамилии и ID",
+        security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Выгрузка начата"),
+        @ApiResponse(responseCode = "401", description = "Отсутствует или недействительный токен")
+    })
+    public ResponseEntity<StreamingResponseBody> exportTeachers(@PathVariable(name = "id") Long id,
+                                                                HttpServletRequest httpServletRequest)
+    {
+        return rosterExport(MembershipIndex.Kind.TEACHER, id, httpServletRequest);
+    }
+
+    @GetMapping("/schools/{id}/teachers/count")
+    @Operation(
+        summary = "Количество учителей в школе",
+        description = "Возвращает количество учителей без чтения списка",
+        security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Количество получено"),
+        @ApiResponse(responseCode = "401", description = "Отсутствует или недействительный токен")
+    })
+    public ResponseEntity<?> countTeachers(@PathVariable(name = "id") Long id, HttpServletRequest httpServletRequest)
+    {
+        return rosterCount(MembershipIndex.Kind.TEACHER, id, httpServletRequest);
+    }
+
+    private ResponseEntity<?> enroll(MembershipIndex.Kind kind, Long id, List<Long> userIds, boolean add,
+                                     HttpServletRequest httpServletRequest)
+    {
+        Map<String, Object> userInfo = extractUser(httpServletRequest);
+        if(userInfo == null)
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Невалидный или отсутствующий токен");
+
+        if(!"ADMIN".equals(userInfo.get("role")))
+        {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Недостаточно прав");
+        }
+
+        try {
+            return ResponseEntity.ok(add
+                    ? enrollmentService.add(kind, id, userIds)
+                    : enrollmentService.remove(kind, id, userIds));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (UsernameNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/schools/{id}/teachers:batch")
+    @Operation(
+        summary = "Пакетное добавление учителей в школу",
+        description = "Принимает список ID пользователей и добавляет тех, кого ещё нет в школе. Требуются права администратора.",
+        security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Количество запрошенных и добавленных"),
+        @ApiResponse(responseCode = "400", description = "Превышен размер пакета или есть пользователи без нужной роли"),
+        @ApiResponse(responseCode = "401", description = "Невалидный или отсутствующий токен"),
+        @ApiResponse(responseCode = "403", description = "Недостаточно прав"),
+        @ApiResponse(responseCode = "404", description = "Школа не найдена")
+    })
+    public ResponseEntity<?> addTeachers(@PathVariable(name = "id") Long id,
+                                         @RequestBody List<Long> userIds,
+                                         HttpServletRequest httpServletRequest)
+    {
+        return enroll(MembershipIndex.Kind.TEACHER, id, userIds, true, httpServletRequest);
+    }
+
+    @DeleteMapping("/schools/{id}/teachers:batch")
+    @Operation(
+        summary = "Пакетное удаление учителей из школы",
+        description = "Принимает список ID пользователей и удаляет тех, кто состоит в школе. Требуются права администратора.",
+        security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Количество запрошенных и удалённых"),
+        @ApiResponse(responseCode = "400", description = "Превышен размер пакета"),
+        @ApiResponse(responseCode = "401", description = "Невалидный или отсутствующий токен"),
+        @ApiResponse(responseCode = "403", description = "Недостаточно прав"),
+        @ApiResponse(responseCode = "404", description = "Школа не найдена")
+    })
+    public ResponseEntity<?> removeTeachers(@PathVariable(name = "id") Long id,
+                                            @RequestBody List<Long> userIds,
+                                            HttpServletRequest httpServletRequest)
+    {
+        return enroll(MembershipIndex.Kind.TEACHER, id, userIds, false, httpServletRequest);
+    }
+
+    @PostMapping("/schools/{id}/students:batch")
+    @Operation(
+        summary = "Пакетное добавление учеников в школу",
+        description = "Принимает список ID пользователей и добавляет тех, кого ещё нет в школе. Требуются права администратора.",
+        security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Количество запрошенных и добавленных"),
+        @ApiResponse(responseCode = "400", description = "Превышен размер пакета или есть пользователи без нужной роли"),
+        @ApiResponse(responseCode = "401", description = "Невалидный или отсутствующий токен"),
+        @ApiResponse(responseCode = "403", description = "Недостаточно прав"),
+        @ApiResponse(responseCode = "404", description = "Школа не найдена")
+    })
+    public ResponseEntity<?> addStudents(@PathVariable(name = "id") Long id,
+                                         @RequestBody List<Long> userIds,
+                                         HttpServletRequest httpServletRequest)
+    {
+        return enroll(MembershipIndex.Kind.STUDENT, id, userIds, true, httpServletRequest);
+    }
+
+    @DeleteMapping("/schools/{id}/students:batch")
+    @Operation(
+        summary = "Пакетное удаление учеников из школы",
+        description = "Принимает список ID пользователей и удаляет тех, кто состоит в школе. Требуются права администратора.",
+        security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Количество запрошенных и удалённых"),
+        @ApiResponse(responseCode = "400", description = "Превышен размер пакета"),
+        @ApiResponse(responseCode = "401", description = "Невалидный или отсутствующий токен"),
+        @ApiResponse(responseCode = "403", description = "Недостаточно прав"),
+        @ApiResponse(responseCode = "404", description = "Школа не найдена")
+    })
+    public ResponseEntity<?> removeStudents(@PathVariable(name = "id") Long id,
+                                            @RequestBody List<Long> userIds,
+                                            HttpServletRequest httpServletRequest)
+    {
+        return enroll(MembershipIndex.Kind.STUDENT, id, userIds, false, httpServletRequest);
+    }
+
+    @GetMapping("/schools/{id}/stats")
+    @Operation(
+        summary = "Статистика школы",
+        description = "Возвращает количество учителей и учеников, уроков в неделю и посещаемость за последние дни. " +
+                "Требуются права администратора.",
+        security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Статистика получена"),
+        @ApiResponse(responseCode = "401", description = "Невалидный или отсутствующий токен"),
+        @ApiResponse(responseCode = "403", description = "Недостаточно прав"),
+        @ApiResponse(responseCode = "404", description = "Школа не найдена")
+    })
+    public ResponseEntity<?> getSchoolStats(@PathVariable(name = "id") Long id, HttpServletRequest httpServletRequest)
+    {
+        Map<String, Object> userInfo = extractUser(httpServletRequest);
+        if(userInfo == null)
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Невалидный или отсутствующий токен");
+
+        if(!"ADMIN".equals(userInfo.get("role")))
+        {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Недостаточно прав");
+        }
+
+        SchoolStats stats = schoolStatsService.get(id);
+        if(stats == null)
+        {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Школа не найдена");
+        }
+        return ResponseEntity.ok(stats);
+    }
+
+    @GetMapping("/schools/stats")
+    @Operation(
+        summary = "Статистика всех школ",
+        description = "Возвращает страницу статистики школ, упорядоченных по ID. " +
+                "Для следующей страницы передайте nextCursor из ответа. Требуются права администратора.",
+        security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Статистика получена"),
+        @ApiResponse(responseCode = "401", description = "Невалидный или отсутствующий токен"),
+        @ApiResponse(responseCode = "403", description = "Недостаточно прав")
+    })
+    public ResponseEntity<?> getAllSchoolStats(@Parameter(description = "ID последней школы предыдущей страницы")
+                                               @RequestParam(name = "cursor", defaultValue = "0") long cursor,
+                                               @Parameter(description = "Размер страницы")
+                                               @RequestParam(name = "limit", defaultValue = "100") int limit,
+                                               HttpServletRequest httpServletRequest)
+    {
+        Map<String, Object> userInfo = extractUser(httpServletRequest);
+        if(userInfo == null)
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Невалидный или отсутствующий токен");
+
+        if(!"ADMIN".equals(userInfo.get("role")))
+        {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Недостаточно прав");
+        }
+
+        return ResponseEntity.ok(schoolStatsService.page(cursor, limit));
+    }
+
+    @PostMapping("/schools/stats/deltas")
+    @Operation(
+        summary = "Изменение счётчиков статистики",
+        description = "Принимает изменения количества уроков от timetable-service и отметок посещаемости от document-service. " +
+                "Требуется заголовок X-Service-Token"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Изменения применены"),
+        @ApiResponse(responseCode = "400", description = "Превышен размер пакета")
+    })
+    public ResponseEntity<?> applyStatsDeltas(@RequestBody List<StatsDelta> deltas)
+    {
+        try {
+            schoolStatsService.apply(deltas);
+            return ResponseEntity.ok().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     @GetMapping("/schools/validate")
     @Operation(
         summary = "Проверка существования школы",
@@ -230,15 +541,22 @@ public class SchoolController {
     @GetMapping("/schools/{id}/students")
     @Operation(
         summary = "Получение списка студентов в школе",
-        description = "Возвращает список студентов, прикреплённых к указанной школе",
+        description = "Возвращает список студентов, прикреплённых к указанной школе. " +
+                "Если передан cursor или limit, возвращает страницу, упорядоченную по фамилии и ID; " +
+                "для следующей страницы передайте nextCursor из ответа.",
         security = @SecurityRequirement(name = "bearerAuth")
     )
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Список студентов получен"),
+        @ApiResponse(responseCode = "400", description = "Некорректный курсор"),
         @ApiResponse(responseCode = "401", description = "Отсутствует или недействительный токен"),
         @ApiResponse(responseCode = "404", description = "Школа с таким ID не найдена")
     })
     public ResponseEntity<?> getAllStudentsInSchoolById(@PathVariable(name = "id") Long id,
+                                                      @Parameter(description = "nextCursor предыдущей страницы")
+                                                      @RequestParam(name = "cursor", required = false) String cursor,
+                                                      @Parameter(description = "Размер страницы")
+                                                      @RequestParam(name = "limit", required = false) Integer limit,
                                                       HttpServletRequest httpServletRequest)
     {
         Map<String, Object> userInfo = extractUser(httpServletRequest);
@@ -252,10 +570,48 @@ public class SchoolController {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Недостаточно прав");
         }
 
+        if(cursor != null || limit != null)
+        {
+            return rosterPage(MembershipIndex.Kind.STUDENT, id, cursor, limit != null ? limit : 100);
+        }
+
         List<StudentInfo> students = schoolTeacherRepository.findStudentInfoBySchoolId(id);
         return ResponseEntity.ok(students);
     }
 
+    @GetMapping(value = "/schools/{id}/students/export", produces = "application/x-ndjson")
+    @Operation(
+        summary = "Потоковая выгрузка студентов школы",
+        description = "Возвращает студентов школы в формате NDJSON, по одному на строку, в порядке фамилии и ID",
+        security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Выгрузка начата"),
+        @ApiResponse(responseCode = "401", description = "Отсутствует или недействительный токен"),
+        @ApiResponse(responseCode = "403", description = "Недостаточно прав")
+    })
+    public ResponseEntity<StreamingResponseBody> exportStudents(@PathVariable(name = "id") Long id,
+                                                                HttpServletRequest httpServletRequest)
+    {
+        return rosterExport(MembershipIndex.Kind.STUDENT, id, httpServletRequest);
+    }
+
+    @GetMapping("/schools/{id}/students/count")
+    @Operation(
+        summary = "Количество студентов в школе",
+        description = "Возвращает количество студентов без чтения списка",
+        security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Количество получено"),
+        @ApiResponse(responseCode = "401", description = "Отсутствует или недействительный токен"),
+        @ApiResponse(responseCode = "403", description = "Недостаточно прав")
+    })
+    public ResponseEntity<?> countStudents(@PathVariable(name = "id") Long id, HttpServletRequest httpServletRequest)
+    {
+        return rosterCount(MembershipIndex.Kind.STUDENT, id, httpServletRequest);
+    }
+
     @GetMapping("/schools/{id}/validate-teacher/{teacherId}")
     @Operation(
         summary = "Проверка существования учителя в школе",
@@ -269,6 +625,85 @@ public class SchoolController {
     public ResponseEntity<?> validateTeacherById(@PathVariable("id") Long school_id,
                                              @PathVariable("teacherId") Long teacher_id)
     {
-        return ResponseEntity.ok(schoolTeacherRepository.existsBySchoolIdAndTeacherId(school_id, teacher_id));
+        return ResponseEntity.ok(membershipService.isTeacher(school_id, teacher_id));
+    }
+
+    @GetMapping("/schools/memberships/{userId}")
+    @Operation(
+        summary = "Школы пользователя",
+        description = "Возвращает школы, в которых пользователь состоит в указанной роли, и версию его членства. " +
+                "Используется account-service для встраивания школ в JWT. Требуется заголовок X-Service-Token"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Ответ получен")
+    })
+    public ResponseEntity<UserMemberships> getUserMemberships(
+            @PathVariable Long userId,
+            @Parameter(description = "TEACHER или STUDENT") @RequestParam MembershipIndex.Kind kind)
+    {
+        return ResponseEntity.ok(membershipService.memberships(kind, userId));
+    }
+
+    @GetMapping("/schools/memberships/{userId}/version")
+    @Operation(
+        summary = "Версия членства пользователя",
+        description = "Возвращает версию членства пользователя в школах. Требуется заголовок X-Service-Token"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Ответ получен")
+    })
+    public ResponseEntity<Long> getMembershipVersion(@PathVariable Long userId)
+    {
+        return ResponseEntity.ok(membershipService.membershipVersion(userId));
+    }
+
+    @PostMapping("/schools/validate-teachers")
+    @Operation(
+        summary = "Пакетная проверка учителей в школах",
+        description = "Принимает список пар {schoolId, teacherId} и возвращает true или false для каждой пары в том же порядке"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Ответ получен"),
+        @ApiResponse(responseCode = "400", description = "Превышен размер пакета")
+    })
+    public ResponseEntity<?> validateTeachers(@RequestBody List<MembershipCheck> checks)
+    {
+        try {
+            return ResponseEntity.ok(membershipService.areTeachers(checks));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/schools/validate-students")
+    @Operation(
+        summary = "Пакетная проверка учеников в школах",
+        description = "Принимает список пар {schoolId, studentId} и возвращает true или false для каждой пары в том же порядке"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Ответ получен"),
+        @ApiResponse(responseCode = "400", description = "Превышен размер пакета")
+    })
+    public ResponseEntity<?> validateStudents(@RequestBody List<MembershipCheck> checks)
+    {
+        try {
+            return ResponseEntity.ok(membershipService.areStudents(checks));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/schools/{id}/validate-student/{studentId}")
+    @Operation(
+        summary = "Проверка существования ученика в школе",
+        description = "Возвращает true или false, зависит от наличия школы по указанному ID и ученика"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Ответ получен")
+    })
+    public ResponseEntity<?> validateStudentById(@PathVariable("id") Long school_id,
+                                                 @PathVariable("studentId") Long student_id)
+    {
+        return ResponseEntity.ok(membershipService.isStudent(school_id, student_id));
     }
 }
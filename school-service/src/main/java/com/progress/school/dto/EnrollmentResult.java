@@ -0,0 +1,17 @@
+package com.progress.school.dto;
+
+public class EnrollmentResult {
+    private final int requested;
+    private final int changed;
+
+    public EnrollmentResult(int requested, int changed) {
+        this.requested = requested;
+        this.changed = changed;
+    }
+
+    // Количество различных ID в запросе
+    public int getRequested() { return requested; }
+
+    // Количество реально добавленных или удалённых участников, остальные уже были (или не были) в школе
+    public int getChanged() { return changed; }
+}
@@ -0,0 +1,25 @@
+package com.progress.school.dto;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+
+// Пара школа-участник для пакетной проверки членства
+public class MembershipCheck {
+    private Long schoolId;
+
+    @JsonAlias({"teacherId", "studentId"})
+    private Long userId;
+
+    public MembershipCheck() {}
+
+    public MembershipCheck(Long schoolId, Long userId)
+    {
+        this.schoolId = schoolId;
+        this.userId = userId;
+    }
+
+    public Long getSchoolId() { return schoolId; }
+    public void setSchoolId(Long schoolId) { this.schoolId = schoolId; }
+
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+}
@@ -0,0 +1,23 @@
+package com.progress.school.dto;
+
+public class RosterMember {
+    private final Long id;
+    private final String email;
+    private final String first_name;
+    private final String last_name;
+
+    public RosterMember(Long id, String email, String first_name, String last_name) {
+        this.id = id;
+        this.email = email;
+        this.first_name = first_name;
+        this.last_name = last_name;
+    }
+
+    public Long getId() { return id; }
+
+    public String getEmail() { return email; }
+
+    public String getFirst_name() { return first_name; }
+
+    public String getLast_name() { return last_name; }
+}
@@ -0,0 +1,18 @@
+package com.progress.school.dto;
+
+import java.util.List;
+
+public class RosterPage {
+    private final List<RosterMember> members;
+    private final String nextCursor;
+
+    public RosterPage(List<RosterMember> members, String nextCursor) {
+        this.members = members;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<RosterMember> getMembers() { return members; }
+
+    // Фамилия и ID последнего участника на странице (base64url) или null, если страница последняя
+    public String getNextCursor() { return nextCursor; }
+}
@@ -0,0 +1,18 @@
+package com.progress.school.dto;
+
+import java.util.List;
+
+public class SchoolPage {
+    private final List<SchoolSummary> schools;
+    private final Long nextCursor;
+
+    public SchoolPage(List<SchoolSummary> schools, Long nextCursor) {
+        this.schools = schools;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<SchoolSummary> getSchools() { return schools; }
+
+    // ID последней школы на странице или null, если страница последняя
+    public Long getNextCursor() { return nextCursor; }
+}
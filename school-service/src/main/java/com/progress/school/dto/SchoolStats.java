@@ -0,0 +1,37 @@
+package com.progress.school.dto;
+
+public class SchoolStats {
+    private final Long schoolId;
+    private final long teachers;
+    private final long students;
+    private final long weeklyLessons;
+    private final long present;
+    private final long absent;
+
+    public SchoolStats(Long schoolId, long teachers, long students, long weeklyLessons, long present, long absent) {
+        this.schoolId = schoolId;
+        this.teachers = teachers;
+        this.students = students;
+        this.weeklyLessons = weeklyLessons;
+        this.present = present;
+        this.absent = absent;
+    }
+
+    public Long getSchoolId() { return schoolId; }
+
+    public long getTeachers() { return teachers; }
+
+    public long getStudents() { return students; }
+
+    public long getWeeklyLessons() { return weeklyLessons; }
+
+    // Отметки посещаемости за последние schools.stats.attendance-days дней
+    public long getPresent() { return present; }
+
+    public long getAbsent() { return absent; }
+
+    // Доля присутствий за тот же период или null, если отметок не было
+    public Double getAttendanceRate() {
+        return present + absent > 0 ? (double) present / (present + absent) : null;
+    }
+}
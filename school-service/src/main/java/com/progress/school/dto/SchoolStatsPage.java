@@ -0,0 +1,18 @@
+package com.progress.school.dto;
+
+import java.util.List;
+
+public class SchoolStatsPage {
+    private final List<SchoolStats> stats;
+    private final Long nextCursor;
+
+    public SchoolStatsPage(List<SchoolStats> stats, Long nextCursor) {
+        this.stats = stats;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<SchoolStats> getStats() { return stats; }
+
+    // ID последней школы на странице или null, если страница последняя
+    public Long getNextCursor() { return nextCursor; }
+}
@@ -0,0 +1,20 @@
+package com.progress.school.dto;
+
+// Краткие данные школы без списков учителей и учеников
+public class SchoolSummary {
+    private final Long id;
+    private final String name;
+    private final String address;
+
+    public SchoolSummary(Long id, String name, String address) {
+        this.id = id;
+        this.name = name;
+        this.address = address;
+    }
+
+    public Long getId() { return id; }
+
+    public String getName() { return name; }
+
+    public String getAddress() { return address; }
+}
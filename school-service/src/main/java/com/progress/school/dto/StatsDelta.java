@@ -0,0 +1,29 @@
+package com.progress.school.dto;
+
+import java.time.LocalDate;
+
+// Изменение счётчиков школы от timetable-service (lessons) или document-service (date, present, absent)
+public class StatsDelta {
+    private Long schoolId;
+    private long lessons;
+    private LocalDate date;
+    private long present;
+    private long absent;
+
+    public StatsDelta() {}
+
+    public Long getSchoolId() { return schoolId; }
+    public void setSchoolId(Long schoolId) { this.schoolId = schoolId; }
+
+    public long getLessons() { return lessons; }
+    public void setLessons(long lessons) { this.lessons = lessons; }
+
+    public LocalDate getDate() { return date; }
+    public void setDate(LocalDate date) { this.date = date; }
+
+    public long getPresent() { return present; }
+    public void setPresent(long present) { this.present = present; }
+
+    public long getAbsent() { return absent; }
+    public void setAbsent(long absent) { this.absent = absent; }
+}
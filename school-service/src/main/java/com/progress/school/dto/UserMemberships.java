@@ -0,0 +1,19 @@
+package com.progress.school.dto;
+
+import java.util.List;
+
+// Школы пользователя в его роли и версия членства, для встраивания в JWT в account-service
+public class UserMemberships {
+    private final List<Long> schoolIds;
+    private final long version;
+
+    public UserMemberships(List<Long> schoolIds, long version) {
+        this.schoolIds = schoolIds;
+        this.version = version;
+    }
+
+    public List<Long> getSchoolIds() { return schoolIds; }
+
+    // Увеличивается при каждом изменении членства пользователя в любой школе
+    public long getVersion() { return version; }
+}
@@ -4,8 +4,6 @@ import jakarta.persistence.*;
 import org.springframework.security.core.userdetails.User;
 
 import java.time.LocalDateTime;
-import java.util.HashSet;
-import java.util.Set;
 
 @Entity
 @Table(name = "schools")
@@ -22,16 +20,7 @@ public class School {
     private LocalDateTime created_at;
     private LocalDateTime updated_at;
 
-
-    @ElementCollection
-    @CollectionTable(name = "school_teachers", joinColumns = @JoinColumn(name = "school_id"))
-    @Column(name = "teacher_id")
-    private Set<Long> teacherIds = new HashSet<>();
-
-    @ElementCollection
-    @CollectionTable(name = "school_students", joinColumns = @JoinColumn(name = "school_id"))
-    @Column(name = "student_id")
-    private Set<Long> studentIds = new HashSet<>();
+    // Учителя и ученики школы хранятся отдельными сущностями SchoolTeacher и SchoolStudent
 
     public School() {}
 
@@ -43,12 +32,6 @@ public class School {
     public String getAddress() { return address; }
     public void setAddress(String address) { this.address = address; }
 
-    public Set<Long> getTeachersIds() { return teacherIds; }
-    public void setTeachersIds(Set<Long> teacherIds) { this.teacherIds = teacherIds; }
-
-    public Set<Long> getStudentIds() { return studentIds; }
-    public void setStudentIds(Set<Long> studentIds) { this.studentIds = studentIds; }
-
     @PrePersist
     protected void onCreate() {
         created_at = LocalDateTime.now();
@@ -0,0 +1,53 @@
+package com.progress.school.model;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+// Членство ученика в школе, одна строка на пару. Пакетно пишется через EnrollmentService
+@Entity
+@Table(name = "school_students")
+@IdClass(SchoolStudent.Key.class)
+public class SchoolStudent {
+    @Id
+    @Column(name = "school_id")
+    private Long schoolId;
+
+    @Id
+    @Column(name = "student_id")
+    private Long studentId;
+
+    public SchoolStudent() {}
+
+    public SchoolStudent(Long schoolId, Long studentId) {
+        this.schoolId = schoolId;
+        this.studentId = studentId;
+    }
+
+    public Long getSchoolId() { return schoolId; }
+
+    public Long getStudentId() { return studentId; }
+
+    public static class Key implements Serializable {
+        private Long schoolId;
+        private Long studentId;
+
+        public Key() {}
+
+        public Key(Long schoolId, Long studentId) {
+            this.schoolId = schoolId;
+            this.studentId = studentId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key key && Objects.equals(schoolId, key.schoolId) && Objects.equals(studentId, key.studentId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(schoolId, studentId);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.progress.school.model;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+// Членство учителя в школе, одна строка на пару. Пакетно пишется через EnrollmentService
+@Entity
+@Table(name = "school_teachers")
+@IdClass(SchoolTeacher.Key.class)
+public class SchoolTeacher {
+    @Id
+    @Column(name = "school_id")
+    private Long schoolId;
+
+    @Id
+    @Column(name = "teacher_id")
+    private Long teacherId;
+
+    public SchoolTeacher() {}
+
+    public SchoolTeacher(Long schoolId, Long teacherId) {
+        this.schoolId = schoolId;
+        this.teacherId = teacherId;
+    }
+
+    public Long getSchoolId() { return schoolId; }
+
+    public Long getTeacherId() { return teacherId; }
+
+    public static class Key implements Serializable {
+        private Long schoolId;
+        private Long teacherId;
+
+        public Key() {}
+
+        public Key(Long schoolId, Long teacherId) {
+            this.schoolId = schoolId;
+            this.teacherId = teacherId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key key && Objects.equals(schoolId, key.schoolId) && Objects.equals(teacherId, key.teacherId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(schoolId, teacherId);
+        }
+    }
+}
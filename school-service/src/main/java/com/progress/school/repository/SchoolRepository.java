@@ -1,9 +1,14 @@
 package com.progress.school.repository;
 
+import com.progress.school.dto.SchoolSummary;
 import com.progress.school.model.School;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -11,4 +16,20 @@ public interface SchoolRepository extends JpaRepository<School, Long> {
     Optional<School> findById(Long id);
     boolean existsByName(String name);
     Optional<School> findByName(String name);
+
+    @Query("SELECT new com.progress.school.dto.SchoolSummary(s.id, s.name, s.address) FROM School s ORDER BY s.id")
+    List<SchoolSummary> findAllSummaries();
+
+    @Query("SELECT new com.progress.school.dto.SchoolSummary(s.id, s.name, s.address) FROM School s " +
+            "WHERE s.id > :cursor ORDER BY s.id")
+    List<SchoolSummary> findSummariesAfter(@Param("cursor") Long cursor, Pageable pageable);
+
+    // Префикс названия или адреса, использует индексы ix_schools_name_prefix и ix_schools_address_prefix
+    @Query("SELECT new com.progress.school.dto.SchoolSummary(s.id, s.name, s.address) FROM School s " +
+            "WHERE (lower(s.name) LIKE :prefix ESCAPE '\\' OR lower(s.address) LIKE :prefix ESCAPE '\\') " +
+            "AND s.id > :cursor ORDER BY s.id")
+    List<SchoolSummary> searchSummariesAfter(@Param("prefix") String prefix, @Param("cursor") Long cursor, Pageable pageable);
+
+    @Query("SELECT new com.progress.school.dto.SchoolSummary(s.id, s.name, s.address) FROM School s WHERE s.id = :id")
+    Optional<SchoolSummary> findSummaryById(@Param("id") Long id);
 }
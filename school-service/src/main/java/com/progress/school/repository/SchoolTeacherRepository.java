@@ -4,6 +4,7 @@ import com.progress.school.dto.StudentInfo;
 import com.progress.school.dto.TeacherInfo;
 import com.progress.school.model.School;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -15,24 +16,46 @@ import java.util.Optional;
 public interface SchoolTeacherRepository extends JpaRepository<School, Long> {
     Optional<School> findById(Long id);
 
-    @Query(value = "SELECT users.email as email, users.first_name as first_name, users.last_name as last_name " +
-            "FROM users " +
-            "JOIN school_teachers ON users.id = school_teachers.teacher_id " +
-            "WHERE school_teachers.school_id = :school_id",
+    // Читается из проекции school_roster по первичному ключу, без соединения с users account-service
+    @Query(value = "SELECT email, first_name, last_name FROM school_roster " +
+            "WHERE school_id = :school_id AND kind = 'TEACHER'",
             nativeQuery = true
     )
     List<TeacherInfo> findTeacherInfoBySchoolId(@Param("school_id") Long schoolId);
 
-    @Query(value = "SELECT users.email as email, users.first_name as first_name, users.last_name as last_name " +
-            "FROM users " +
-            "JOIN school_students ON users.id = school_students.student_id " +
-            "WHERE school_students.school_id = :school_id",
+    // Читается из проекции school_roster по первичному ключу, без соединения с users account-service
+    @Query(value = "SELECT email, first_name, last_name FROM school_roster " +
+            "WHERE school_id = :school_id AND kind = 'STUDENT'",
             nativeQuery = true
     )
     List<StudentInfo> findStudentInfoBySchoolId(@Param("school_id") Long schoolId);
 
-    @Query(value = "SELECT COUNT(*) > 0 FROM school_teachers WHERE school_id = :schoolId AND teacher_id = :teacherId",
+    // Использует индекс ux_school_teachers
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM school_teachers WHERE school_id = :schoolId AND teacher_id = :teacherId)",
             nativeQuery = true)
     boolean existsBySchoolIdAndTeacherId(@Param("schoolId") Long schoolId, @Param("teacherId") Long teacherId);
 
+    // Использует индекс ux_school_students
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM school_students WHERE school_id = :schoolId AND student_id = :studentId)",
+            nativeQuery = true)
+    boolean existsBySchoolIdAndStudentId(@Param("schoolId") Long schoolId, @Param("studentId") Long studentId);
+
+    // Увеличивает версию членства всех учителей и учеников школы, строки блокируются по возрастанию user_id
+    @Modifying
+    @Query(value = "INSERT INTO membership_versions (user_id, version) " +
+            "SELECT teacher_id, 1 FROM school_teachers WHERE school_id = :schoolId " +
+            "UNION SELECT student_id, 1 FROM school_students WHERE school_id = :schoolId " +
+            "ORDER BY 1 " +
+            "ON CONFLICT (user_id) DO UPDATE SET version = membership_versions.version + 1",
+            nativeQuery = true)
+    int bumpMembershipVersions(@Param("schoolId") Long schoolId);
+
+    @Modifying
+    @Query(value = "DELETE FROM school_teachers WHERE school_id = :schoolId", nativeQuery = true)
+    int deleteTeachersBySchoolId(@Param("schoolId") Long schoolId);
+
+    @Modifying
+    @Query(value = "DELETE FROM school_students WHERE school_id = :schoolId", nativeQuery = true)
+    int deleteStudentsBySchoolId(@Param("schoolId") Long schoolId);
+
 }
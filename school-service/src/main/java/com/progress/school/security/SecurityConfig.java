@@ -9,6 +9,13 @@ import org.springframework.security.web.SecurityFilterChain;
 
 @Configuration
 public class SecurityConfig {
+    private final ServiceAuthorization serviceAuthorization;
+
+    public SecurityConfig(ServiceAuthorization serviceAuthorization)
+    {
+        this.serviceAuthorization = serviceAuthorization;
+    }
+
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http
@@ -23,7 +30,19 @@ public class SecurityConfig {
                 .requestMatchers(HttpMethod.GET, "/api/v1/schools/*/teachers").permitAll()
                 .requestMatchers(HttpMethod.GET, "/api/v1/schools/validate").permitAll()
                 .requestMatchers(HttpMethod.GET, "/api/v1/schools/*/students").permitAll()
+                .requestMatchers(HttpMethod.GET, "/api/v1/schools/*/teachers/export", "/api/v1/schools/*/teachers/count").permitAll()
+                .requestMatchers(HttpMethod.GET, "/api/v1/schools/*/students/export", "/api/v1/schools/*/students/count").permitAll()
+                .requestMatchers(HttpMethod.POST, "/api/v1/schools/*/teachers:batch", "/api/v1/schools/*/students:batch").permitAll()
+                .requestMatchers(HttpMethod.GET, "/api/v1/schools/*/stats").permitAll()
+                // Только для timetable-service и document-service, с X-Service-Token
+                .requestMatchers(HttpMethod.POST, "/api/v1/schools/stats/deltas").access(serviceAuthorization)
+                // Только для account-service, с X-Service-Token
+                .requestMatchers(HttpMethod.GET, "/api/v1/schools/memberships/**").access(serviceAuthorization)
+                .requestMatchers(HttpMethod.DELETE, "/api/v1/schools/*/teachers:batch", "/api/v1/schools/*/students:batch").permitAll()
                 .requestMatchers(HttpMethod.GET, "/api/v1/schools/*/validate-teacher/*").permitAll()
+                .requestMatchers(HttpMethod.GET, "/api/v1/schools/*/validate-student/*").permitAll()
+                .requestMatchers(HttpMethod.POST, "/api/v1/schools/validate-teachers").permitAll()
+                .requestMatchers(HttpMethod.POST, "/api/v1/schools/validate-students").permitAll()
                 .anyRequest().authenticated()
             );
 
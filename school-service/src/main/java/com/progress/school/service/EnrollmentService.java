@@ -0,0 +1,189 @@
+package com.progress.school.service;
+
+import com.progress.school.dto.EnrollmentResult;
+import com.progress.school.repository.SchoolRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Пакетное добавление и удаление учителей и учеников школы.
+ * Пишутся только изменившиеся пары: вставка одним JDBC batch с ON CONFLICT DO NOTHING
+ * по уникальным индексам ux_school_teachers и ux_school_students, удаление - batch по паре.
+ * В той же транзакции обновляются проекция school_roster, счётчики school_stats и версии членства изменившихся участников,
+ * а изменение пишется в журнал индекса членства membership_changes.
+ * Добавлять можно только пользователей, чей профиль уже пришёл из account-service в member_profiles
+ * с ролью, совпадающей с добавлением (TEACHER или STUDENT).
+ */
+@Service
+public class EnrollmentService {
+    // Сколько неподходящих ID перечисляется в ошибке
+    private static final int MAX_REPORTED_IDS = 20;
+
+    private final SchoolRepository schoolRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final MembershipIndex membershipIndex;
+    private final RosterProjection rosterProjection;
+    private final SchoolStatsService schoolStatsService;
+    private final int maxBatchSize;
+
+    public EnrollmentService(SchoolRepository schoolRepository,
+                             JdbcTemplate jdbcTemplate,
+                             MembershipIndex membershipIndex,
+                             RosterProjection rosterProjection,
+                             SchoolStatsService schoolStatsService,
+                             @Value("${schools.enrollment.max-size:5000}") int maxBatchSize)
+    {
+        this.schoolRepository = schoolRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.membershipIndex = membershipIndex;
+        this.rosterProjection = rosterProjection;
+        this.schoolStatsService = schoolStatsService;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Добавление участников в школу. Уже состоящие в школе пропускаются.
+     * @param kind Учителя или ученики
+     * @param schoolId ID школы
+     * @param userIds ID пользователей, повторы и null отбрасываются
+     * @return Количество различных ID и количество добавленных
+     * @throws UsernameNotFoundException если школа не найдена
+     * @throws IllegalArgumentException если превышен schools.enrollment.max-size
+     * или среди ID есть пользователи без профиля с нужной ролью
+     */
+    @Transactional
+    public EnrollmentResult add(MembershipIndex.Kind kind, Long schoolId, Collection<Long> userIds)
+    {
+        List<Long> ids = prepare(schoolId, userIds);
+        checkRoles(kind, ids);
+        List<Long> added = apply(kind == MembershipIndex.Kind.TEACHER
+                ? "INSERT INTO school_teachers (school_id, teacher_id) VALUES (?, ?) ON CONFLICT DO NOTHING"
+                : "INSERT INTO school_students (school_id, student_id) VALUES (?, ?) ON CONFLICT DO NOTHING",
+                schoolId, ids);
+
+        if(!added.isEmpty())
+        {
+            rosterProjection.addMembers(kind, schoolId, added);
+            schoolStatsService.adjustMembers(kind, schoolId, added.size());
+            bumpMembershipVersions(added);
+            membershipIndex.recordAdded(kind, schoolId, added);
+        }
+        return new EnrollmentResult(ids.size(), added.size());
+    }
+
+    /**
+     * Удаление участников из школы. Не состоящие в школе пропускаются.
+     * @param kind Учителя или ученики
+     * @param schoolId ID школы
+     * @param userIds ID пользователей, повторы и null отбрасываются
+     * @return Количество различных ID и количество удалённых
+     * @throws UsernameNotFoundException если школа не найдена
+     * @throws IllegalArgumentException если превышен schools.enrollment.max-size
+     */
+    @Transactional
+    public EnrollmentResult remove(MembershipIndex.Kind kind, Long schoolId, Collection<Long> userIds)
+    {
+        List<Long> ids = prepare(schoolId, userIds);
+        List<Long> removed = apply(kind == MembershipIndex.Kind.TEACHER
+                ? "DELETE FROM school_teachers WHERE school_id = ? AND teacher_id = ?"
+                : "DELETE FROM school_students WHERE school_id = ? AND student_id = ?",
+                schoolId, ids);
+
+        if(!removed.isEmpty())
+        {
+            rosterProjection.removeMembers(kind, schoolId, removed);
+            schoolStatsService.adjustMembers(kind, schoolId, -removed.size());
+            bumpMembershipVersions(removed);
+            membershipIndex.recordRemoved(kind, schoolId, removed);
+        }
+        return new EnrollmentResult(ids.size(), removed.size());
+    }
+
+    private List<Long> prepare(Long schoolId, Collection<Long> userIds)
+    {
+        List<Long> ids = userIds.stream().filter(Objects::nonNull).distinct().toList();
+        if(ids.size() > maxBatchSize)
+        {
+            throw new IllegalArgumentException("Превышен максимальный размер пакета: " + maxBatchSize);
+        }
+        if(!schoolRepository.existsById(schoolId))
+        {
+            throw new UsernameNotFoundException("Школа не найдена");
+        }
+        return ids;
+    }
+
+    // Все ID должны принадлежать пользователям с ролью, совпадающей с видом участника
+    private void checkRoles(MembershipIndex.Kind kind, List<Long> ids)
+    {
+        if(ids.isEmpty())
+        {
+            return;
+        }
+
+        Set<Long> found = new HashSet<>(jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    "SELECT user_id FROM member_profiles WHERE user_id = ANY(?) AND role = ?");
+            statement.setArray(1, connection.createArrayOf("bigint", ids.toArray()));
+            statement.setString(2, kind.name());
+            return statement;
+        }, (resultSet, rowNum) -> resultSet.getLong(1)));
+
+        List<Long> invalid = ids.stream().filter(id -> !found.contains(id)).limit(MAX_REPORTED_IDS).toList();
+        if(!invalid.isEmpty())
+        {
+            throw new IllegalArgumentException("Пользователи не найдены или не имеют роль " + kind.name() + ": " + invalid);
+        }
+    }
+
+    // Выполняет запрос для каждой пары и возвращает ID, для которых строка изменилась
+    private List<Long> apply(String query, Long schoolId, List<Long> ids)
+    {
+        if(ids.isEmpty())
+        {
+            return List.of();
+        }
+
+        int[][] counts = jdbcTemplate.batchUpdate(query, ids, ids.size(), (PreparedStatement statement, Long userId) -> {
+            statement.setLong(1, schoolId);
+            statement.setLong(2, userId);
+        });
+
+        List<Long> changed = new ArrayList<>();
+        for(int i = 0; i < ids.size(); i++)
+        {
+            if(counts[0][i] != 0)
+            {
+                changed.add(ids.get(i));
+            }
+        }
+        return changed;
+    }
+
+    // Версия членства увеличивается, чтобы список школ в JWT этих пользователей перестал считаться актуальным.
+    // Строки блокируются по возрастанию user_id: параллельные изменения с пересекающимися наборами
+    // пользователей ждут друг друга, а не взаимоблокируются
+    private void bumpMembershipVersions(Collection<Long> userIds)
+    {
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO membership_versions (user_id, version) " +
+                    "SELECT user_id, 1 FROM unnest(?::bigint[]) AS u(user_id) ORDER BY user_id " +
+                    "ON CONFLICT (user_id) DO UPDATE SET version = membership_versions.version + 1");
+            statement.setArray(1, connection.createArrayOf("bigint", new TreeSet<>(userIds).toArray()));
+            return statement;
+        });
+    }
+}
@@ -0,0 +1,275 @@
+package com.progress.school.service;
+
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Индекс членства в школах в памяти: для каждой школы сжатые битовые карты (Roaring) ID учителей и учеников.
+ * Загружается при старте и перезагружается раз в schools.membership-index.reload-interval.
+ *
+ * Изменения состава школ пишутся в журнал membership_changes в транзакции изменения, каждый экземпляр
+ * сервиса читает журнал по возрастанию id раз в schools.membership-index.poll-interval и сразу после
+ * фиксации своих изменений. Запись в журнал выполняется под транзакционной advisory-блокировкой,
+ * поэтому id идут в порядке фиксации и все экземпляры применяют изменения в одном и том же порядке.
+ *
+ * Карты не изменяются на месте: при изменении школы создаётся копия её карты и подменяется целиком,
+ * поэтому чтение выполняется без блокировок.
+ * ID больше Integer.MAX_VALUE в карту не помещаются, для них и до первой загрузки ответа нет
+ * и проверка выполняется запросом к БД.
+ */
+@Component
+public class MembershipIndex {
+    private static final Logger log = LoggerFactory.getLogger(MembershipIndex.class);
+
+    public enum Kind {
+        TEACHER("SELECT school_id, teacher_id FROM school_teachers"),
+        STUDENT("SELECT school_id, student_id FROM school_students");
+
+        private final String loadQuery;
+
+        Kind(String loadQuery) {
+            this.loadQuery = loadQuery;
+        }
+    }
+
+    private static final RoaringBitmap EMPTY = new RoaringBitmap();
+    private static final long CHANGES_LOCK_KEY = 0x6d656d5f636867L;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int pollBatchSize;
+    private final Duration changeRetention;
+
+    private volatile Map<Long, RoaringBitmap> teachers;
+    private volatile Map<Long, RoaringBitmap> students;
+    // Последняя применённая запись журнала, изменяется под блокировкой this
+    private long position;
+
+    public MembershipIndex(JdbcTemplate jdbcTemplate,
+                           @Value("${schools.membership-index.poll-batch-size:1000}") int pollBatchSize,
+                           @Value("${schools.membership-index.change-retention:PT1H}") Duration changeRetention)
+    {
+        this.jdbcTemplate = jdbcTemplate;
+        this.pollBatchSize = pollBatchSize;
+        this.changeRetention = changeRetention;
+    }
+
+    /**
+     * Проверка членства по индексу.
+     * @param kind Учитель или ученик
+     * @param schoolId ID школы
+     * @param userId ID пользователя
+     * @return true или false, либо null, если индекс не может ответить и нужна проверка в БД
+     */
+    public Boolean contains(Kind kind, Long schoolId, Long userId)
+    {
+        Map<Long, RoaringBitmap> index = indexOf(kind);
+        if(index == null || !fitsInt(userId))
+        {
+            return null;
+        }
+        return index.getOrDefault(schoolId, EMPTY).contains(userId.intValue());
+    }
+
+    /**
+     * Количество участников школы.
+     * @param kind Учитель или ученик
+     * @param schoolId ID школы
+     * @return Количество или null, если индекс ещё не загружен
+     */
+    public Long count(Kind kind, Long schoolId)
+    {
+        Map<Long, RoaringBitmap> index = indexOf(kind);
+        return index != null ? index.getOrDefault(schoolId, EMPTY).getLongCardinality() : null;
+    }
+
+    /**
+     * Запись добавления участников школы в журнал. Должно вызываться последним в транзакции изменения состава:
+     * блокировка журнала держится до её фиксации.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordAdded(Kind kind, Long schoolId, Collection<Long> userIds)
+    {
+        record(kind, schoolId, userIds, true);
+    }
+
+    /**
+     * Запись удаления участников школы в журнал. Должно вызываться последним в транзакции изменения состава.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordRemoved(Kind kind, Long schoolId, Collection<Long> userIds)
+    {
+        record(kind, schoolId, userIds, false);
+    }
+
+    /**
+     * Запись удаления школы в журнал. Должно вызываться последним в транзакции удаления школы.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordSchoolRemoved(Long schoolId)
+    {
+        record(null, schoolId, null, false);
+    }
+
+    /**
+     * Полная загрузка индекса из БД.
+     * Позиция журнала читается до загрузки карт: записи после неё применяются повторно,
+     * что не меняет результат, так как каждая запись задаёт итоговое состояние своих пар.
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${schools.membership-index.reload-interval:PT5M}")
+    public synchronized void reload()
+    {
+        long loadedPosition = jdbcTemplate.queryForObject("SELECT coalesce(max(id), 0) FROM membership_changes", Long.class);
+        Map<Long, RoaringBitmap> loadedTeachers = load(Kind.TEACHER);
+        Map<Long, RoaringBitmap> loadedStudents = load(Kind.STUDENT);
+        teachers = loadedTeachers;
+        students = loadedStudents;
+        position = loadedPosition;
+        log.debug("Membership index loaded: {} schools with teachers, {} with students",
+                loadedTeachers.size(), loadedStudents.size());
+        poll();
+    }
+
+    /**
+     * Применение новых записей журнала membership_changes по возрастанию id.
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${schools.membership-index.poll-interval:PT1S}")
+    public synchronized void poll()
+    {
+        if(teachers == null)
+        {
+            return;
+        }
+
+        try {
+            int read;
+            do {
+                read = jdbcTemplate.query(
+                        "SELECT id, kind, school_id, user_ids, added FROM membership_changes WHERE id > ? ORDER BY id LIMIT ?",
+                        (resultSet, rowNum) -> {
+                            String kind = resultSet.getString("kind");
+                            Long schoolId = resultSet.getLong("school_id");
+                            if(kind == null)
+                            {
+                                teachers.remove(schoolId);
+                                students.remove(schoolId);
+                            }
+                            else
+                            {
+                                update(Kind.valueOf(kind), schoolId,
+                                        List.of((Long[]) resultSet.getArray("user_ids").getArray()),
+                                        resultSet.getBoolean("added"));
+                            }
+                            position = resultSet.getLong("id");
+                            return position;
+                        },
+                        position, pollBatchSize).size();
+            } while(read == pollBatchSize);
+        } catch (DataAccessException e) {
+            log.warn("Failed to read membership changes: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Удаление записей журнала старше schools.membership-index.change-retention.
+     * Срок должен быть больше интервала перезагрузки: отставший экземпляр догоняет состав перезагрузкой.
+     */
+    @Scheduled(initialDelayString = "${schools.membership-index.reload-interval:PT5M}",
+            fixedDelayString = "${schools.membership-index.reload-interval:PT5M}")
+    public void deleteOldChanges()
+    {
+        jdbcTemplate.update("DELETE FROM membership_changes WHERE created_at < ?",
+                Timestamp.from(Instant.now().minus(changeRetention)));
+    }
+
+    private void record(Kind kind, Long schoolId, Collection<Long> userIds, boolean added)
+    {
+        jdbcTemplate.queryForObject("SELECT pg_advisory_xact_lock(?)::text", String.class, CHANGES_LOCK_KEY);
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO membership_changes (kind, school_id, user_ids, added, created_at) VALUES (?, ?, ?, ?, now())");
+            statement.setString(1, kind != null ? kind.name() : null);
+            statement.setLong(2, schoolId);
+            statement.setArray(3, userIds != null ? connection.createArrayOf("bigint", userIds.toArray()) : null);
+            statement.setBoolean(4, added);
+            return statement;
+        });
+        // Свои изменения применяются сразу после фиксации, не дожидаясь планового чтения журнала
+        afterCommit(this::poll);
+    }
+
+    private Map<Long, RoaringBitmap> load(Kind kind)
+    {
+        Map<Long, RoaringBitmap> bitmaps = new HashMap<>();
+        jdbcTemplate.query(kind.loadQuery, resultSet -> {
+            long userId = resultSet.getLong(2);
+            if(fitsInt(userId))
+            {
+                bitmaps.computeIfAbsent(resultSet.getLong(1), id -> new RoaringBitmap()).add((int) userId);
+            }
+        });
+        bitmaps.values().forEach(RoaringBitmap::runOptimize);
+        return new ConcurrentHashMap<>(bitmaps);
+    }
+
+    private void update(Kind kind, Long schoolId, Collection<Long> userIds, boolean add)
+    {
+        Map<Long, RoaringBitmap> index = indexOf(kind);
+        if(index == null)
+        {
+            return;
+        }
+
+        RoaringBitmap copy = index.getOrDefault(schoolId, EMPTY).clone();
+        for(Long userId : userIds)
+        {
+            if(!fitsInt(userId))
+            {
+                continue;
+            }
+            if(add) copy.add(userId.intValue());
+            else copy.remove(userId.intValue());
+        }
+        copy.runOptimize();
+        index.put(schoolId, copy);
+    }
+
+    private Map<Long, RoaringBitmap> indexOf(Kind kind)
+    {
+        return kind == Kind.TEACHER ? teachers : students;
+    }
+
+    private static boolean fitsInt(Long id)
+    {
+        return id != null && id >= 0 && id <= Integer.MAX_VALUE;
+    }
+
+    private static void afterCommit(Runnable action)
+    {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
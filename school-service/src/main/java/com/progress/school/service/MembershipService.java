@@ -0,0 +1,169 @@
+package com.progress.school.service;
+
+import com.progress.school.dto.MembershipCheck;
+import com.progress.school.dto.UserMemberships;
+import com.progress.school.repository.SchoolTeacherRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Проверка членства учителей и учеников в школах.
+ * Ответ берётся из индекса в памяти, запрос к БД выполняется, только если индекс не может ответить.
+ */
+@Service
+public class MembershipService {
+    private static final String TEACHER_PAIRS_QUERY =
+            "SELECT t.school_id, t.teacher_id FROM unnest(?::bigint[], ?::bigint[]) AS p(school_id, user_id) " +
+            "JOIN school_teachers t ON t.school_id = p.school_id AND t.teacher_id = p.user_id";
+    private static final String STUDENT_PAIRS_QUERY =
+            "SELECT s.school_id, s.student_id FROM unnest(?::bigint[], ?::bigint[]) AS p(school_id, user_id) " +
+            "JOIN school_students s ON s.school_id = p.school_id AND s.student_id = p.user_id";
+    private static final String TEACHER_SCHOOLS_QUERY =
+            "SELECT school_id FROM school_teachers WHERE teacher_id = ? ORDER BY school_id";
+    private static final String STUDENT_SCHOOLS_QUERY =
+            "SELECT school_id FROM school_students WHERE student_id = ? ORDER BY school_id";
+    private static final String VERSION_QUERY =
+            "SELECT COALESCE(MAX(version), 0) FROM membership_versions WHERE user_id = ?";
+
+    private final MembershipIndex membershipIndex;
+    private final SchoolTeacherRepository schoolTeacherRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final int maxBatchSize;
+
+    public MembershipService(MembershipIndex membershipIndex,
+                             SchoolTeacherRepository schoolTeacherRepository,
+                             JdbcTemplate jdbcTemplate,
+                             @Value("${schools.validate.max-size:1000}") int maxBatchSize)
+    {
+        this.membershipIndex = membershipIndex;
+        this.schoolTeacherRepository = schoolTeacherRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Проверка, что учитель прикреплён к школе.
+     * @param schoolId ID школы
+     * @param teacherId ID учителя
+     * @return true, если учитель прикреплён к школе
+     */
+    public boolean isTeacher(Long schoolId, Long teacherId)
+    {
+        Boolean indexed = membershipIndex.contains(MembershipIndex.Kind.TEACHER, schoolId, teacherId);
+        return indexed != null ? indexed : schoolTeacherRepository.existsBySchoolIdAndTeacherId(schoolId, teacherId);
+    }
+
+    /**
+     * Проверка, что ученик прикреплён к школе.
+     * @param schoolId ID школы
+     * @param studentId ID ученика
+     * @return true, если ученик прикреплён к школе
+     */
+    public boolean isStudent(Long schoolId, Long studentId)
+    {
+        Boolean indexed = membershipIndex.contains(MembershipIndex.Kind.STUDENT, schoolId, studentId);
+        return indexed != null ? indexed : schoolTeacherRepository.existsBySchoolIdAndStudentId(schoolId, studentId);
+    }
+
+    /**
+     * Пакетная проверка членства учителей.
+     * @param checks Пары школа-учитель
+     * @return Результаты в том же порядке, что и пары
+     * @throws IllegalArgumentException если превышен schools.validate.max-size
+     */
+    public List<Boolean> areTeachers(List<MembershipCheck> checks)
+    {
+        return checkAll(MembershipIndex.Kind.TEACHER, checks);
+    }
+
+    /**
+     * Пакетная проверка членства учеников.
+     * @param checks Пары школа-ученик
+     * @return Результаты в том же порядке, что и пары
+     * @throws IllegalArgumentException если превышен schools.validate.max-size
+     */
+    public List<Boolean> areStudents(List<MembershipCheck> checks)
+    {
+        return checkAll(MembershipIndex.Kind.STUDENT, checks);
+    }
+
+    /**
+     * Школы пользователя и версия его членства.
+     * Версия читается до списка, чтобы изменение между запросами сделало результат устаревшим, а не наоборот.
+     * @param kind Учитель или ученик
+     * @param userId ID пользователя
+     * @return Школы по возрастанию ID и версия членства
+     */
+    public UserMemberships memberships(MembershipIndex.Kind kind, Long userId)
+    {
+        long version = membershipVersion(userId);
+        List<Long> schoolIds = jdbcTemplate.queryForList(
+                kind == MembershipIndex.Kind.TEACHER ? TEACHER_SCHOOLS_QUERY : STUDENT_SCHOOLS_QUERY, Long.class, userId);
+        return new UserMemberships(schoolIds, version);
+    }
+
+    /**
+     * Текущая версия членства пользователя, увеличивается при каждом изменении его членства.
+     * @param userId ID пользователя
+     * @return Версия или 0, если членство пользователя не менялось
+     */
+    public long membershipVersion(Long userId)
+    {
+        return jdbcTemplate.queryForObject(VERSION_QUERY, Long.class, userId);
+    }
+
+    // Пары, на которые не ответил индекс, проверяются одним запросом
+    private List<Boolean> checkAll(MembershipIndex.Kind kind, List<MembershipCheck> checks)
+    {
+        if(checks.size() > maxBatchSize)
+        {
+            throw new IllegalArgumentException("Превышен максимальный размер пакета: " + maxBatchSize);
+        }
+
+        Boolean[] results = new Boolean[checks.size()];
+        List<Integer> unresolved = new ArrayList<>();
+        for(int i = 0; i < checks.size(); i++)
+        {
+            MembershipCheck check = checks.get(i);
+            if(check == null || check.getSchoolId() == null || check.getUserId() == null)
+            {
+                results[i] = false;
+                continue;
+            }
+
+            results[i] = membershipIndex.contains(kind, check.getSchoolId(), check.getUserId());
+            if(results[i] == null)
+            {
+                unresolved.add(i);
+            }
+        }
+
+        if(!unresolved.isEmpty())
+        {
+            Long[] schoolIds = unresolved.stream().map(i -> checks.get(i).getSchoolId()).toArray(Long[]::new);
+            Long[] userIds = unresolved.stream().map(i -> checks.get(i).getUserId()).toArray(Long[]::new);
+            Set<String> found = new HashSet<>(jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(kind == MembershipIndex.Kind.TEACHER
+                        ? TEACHER_PAIRS_QUERY
+                        : STUDENT_PAIRS_QUERY);
+                statement.setArray(1, connection.createArrayOf("bigint", schoolIds));
+                statement.setArray(2, connection.createArrayOf("bigint", userIds));
+                return statement;
+            }, (resultSet, rowNum) -> resultSet.getLong(1) + ":" + resultSet.getLong(2)));
+
+            for(int i : unresolved)
+            {
+                results[i] = found.contains(checks.get(i).getSchoolId() + ":" + checks.get(i).getUserId());
+            }
+        }
+        return Arrays.asList(results);
+    }
+}
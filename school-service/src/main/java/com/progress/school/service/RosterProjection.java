@@ -0,0 +1,224 @@
+package com.progress.school.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.sql.PreparedStatement;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Проекция состава школ (school_roster) с email и именами участников.
+ * Профили пользователей приходят из потока событий account-service (GET /api/v1/auth/events)
+ * и хранятся в member_profiles, смещение потока хранится в event_offsets.
+ * Пачка событий и новое смещение фиксируются в одной транзакции, поэтому после перезапуска
+ * чтение продолжается с последнего применённого события; для полной перестройки достаточно
+ * удалить строку смещения.
+ *
+ * Составы школ, изменённые в обход school-service, догоняются периодической сверкой reconcile.
+ */
+@Service
+public class RosterProjection {
+    private static final Logger log = LoggerFactory.getLogger(RosterProjection.class);
+
+    private static final String CONSUMER = "account-users";
+    private static final String UPSERTED = "UPSERTED";
+    private static final String DELETED = "DELETED";
+
+    private static final String UPSERT_ROSTER_QUERY =
+            "INSERT INTO school_roster (school_id, kind, member_id, email, first_name, last_name) " +
+            "SELECT m.school_id, m.kind, p.user_id, p.email, p.first_name, p.last_name " +
+            "FROM (SELECT school_id, 'TEACHER' AS kind, teacher_id AS member_id FROM school_teachers WHERE teacher_id = ? " +
+            "      UNION ALL SELECT school_id, 'STUDENT', student_id FROM school_students WHERE student_id = ?) m " +
+            "JOIN member_profiles p ON p.user_id = m.member_id " +
+            "ON CONFLICT (school_id, kind, member_id) DO UPDATE " +
+            "SET email = EXCLUDED.email, first_name = EXCLUDED.first_name, last_name = EXCLUDED.last_name";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final RestTemplate restTemplate;
+    private final String eventsUrl;
+    private final HttpEntity<Void> eventsRequest;
+    private final int batchSize;
+
+    public RosterProjection(JdbcTemplate jdbcTemplate,
+                            TransactionTemplate transactionTemplate,
+                            @Value("${schools.roster.events-url:http://account-service:9080/api/v1/auth/events}") String eventsUrl,
+                            @Value("${schools.roster.batch-size:500}") int batchSize,
+                            @Value("${security.service-token:}") String serviceToken)
+    {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.restTemplate = new RestTemplate();
+        this.eventsUrl = eventsUrl;
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("X-Service-Token", serviceToken);
+        this.eventsRequest = new HttpEntity<>(headers);
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Чтение новых событий пользователей, пока account-service возвращает полные пачки.
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${schools.roster.poll-interval:PT2S}")
+    public void poll()
+    {
+        try {
+            while(true)
+            {
+                long position = jdbcTemplate.query("SELECT position FROM event_offsets WHERE consumer = ?",
+                        resultSet -> resultSet.next() ? resultSet.getLong(1) : 0L, CONSUMER);
+
+                List<UserEvent> events = restTemplate.exchange(
+                        eventsUrl + "?after=" + position + "&limit=" + batchSize,
+                        HttpMethod.GET,
+                        eventsRequest,
+                        new ParameterizedTypeReference<List<UserEvent>>() {
+                        }
+                ).getBody();
+                if(events == null || events.isEmpty())
+                {
+                    return;
+                }
+
+                transactionTemplate.executeWithoutResult(status -> apply(events));
+                if(events.size() < batchSize)
+                {
+                    return;
+                }
+            }
+        } catch (RestClientException e) {
+            log.warn("Failed to read user events from account-service: {}", e.getMessage());
+        }
+    }
+
+    // Смещение блокируется на время транзакции, события, уже применённые другим экземпляром, пропускаются
+    private void apply(List<UserEvent> events)
+    {
+        jdbcTemplate.update("INSERT INTO event_offsets (consumer, position) VALUES (?, 0) ON CONFLICT (consumer) DO NOTHING",
+                CONSUMER);
+        long position = jdbcTemplate.queryForObject("SELECT position FROM event_offsets WHERE consumer = ? FOR UPDATE",
+                Long.class, CONSUMER);
+
+        for(UserEvent event : events)
+        {
+            if(event.id() <= position)
+            {
+                continue;
+            }
+
+            if(DELETED.equals(event.type()))
+            {
+                jdbcTemplate.update("DELETE FROM member_profiles WHERE user_id = ?", event.userId());
+                jdbcTemplate.update("DELETE FROM school_roster WHERE member_id = ?", event.userId());
+            }
+            else if(UPSERTED.equals(event.type()))
+            {
+                jdbcTemplate.update("INSERT INTO member_profiles (user_id, email, first_name, last_name, role) " +
+                                "VALUES (?, ?, ?, ?, ?) ON CONFLICT (user_id) DO UPDATE " +
+                                "SET email = EXCLUDED.email, first_name = EXCLUDED.first_name, " +
+                                "last_name = EXCLUDED.last_name, role = EXCLUDED.role",
+                        event.userId(), event.email(), event.firstName(), event.lastName(), event.role());
+                jdbcTemplate.update(UPSERT_ROSTER_QUERY, event.userId(), event.userId());
+            }
+            position = event.id();
+        }
+
+        jdbcTemplate.update("UPDATE event_offsets SET position = ? WHERE consumer = ?", position, CONSUMER);
+    }
+
+    /**
+     * Добавление участников школы в проекцию по их профилям. Должно вызываться в транзакции изменения состава.
+     * Участники без профиля появятся в проекции, когда придёт событие с их профилем.
+     * @param kind Учителя или ученики
+     * @param schoolId ID школы
+     * @param userIds ID добавленных участников
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void addMembers(MembershipIndex.Kind kind, Long schoolId, Collection<Long> userIds)
+    {
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO school_roster (school_id, kind, member_id, email, first_name, last_name) " +
+                    "SELECT ?, ?, user_id, email, first_name, last_name FROM member_profiles WHERE user_id = ANY (?) " +
+                    "ON CONFLICT (school_id, kind, member_id) DO NOTHING");
+            statement.setLong(1, schoolId);
+            statement.setString(2, kind.name());
+            statement.setArray(3, connection.createArrayOf("bigint", userIds.toArray()));
+            return statement;
+        });
+    }
+
+    /**
+     * Удаление участников школы из проекции. Должно вызываться в транзакции изменения состава.
+     * @param kind Учителя или ученики
+     * @param schoolId ID школы
+     * @param userIds ID удалённых участников
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void removeMembers(MembershipIndex.Kind kind, Long schoolId, Collection<Long> userIds)
+    {
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    "DELETE FROM school_roster WHERE school_id = ? AND kind = ? AND member_id = ANY (?)");
+            statement.setLong(1, schoolId);
+            statement.setString(2, kind.name());
+            statement.setArray(3, connection.createArrayOf("bigint", userIds.toArray()));
+            return statement;
+        });
+    }
+
+    /**
+     * Удаление состава школы из проекции. Должно вызываться в транзакции удаления школы.
+     * @param schoolId ID школы
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void removeSchool(Long schoolId)
+    {
+        jdbcTemplate.update("DELETE FROM school_roster WHERE school_id = ?", schoolId);
+    }
+
+    /**
+     * Сверка проекции с таблицами членства: добавляет недостающие строки и удаляет лишние.
+     */
+    @Scheduled(initialDelayString = "${schools.roster.reconcile-interval:PT10M}",
+            fixedDelayString = "${schools.roster.reconcile-interval:PT10M}")
+    @Transactional
+    public void reconcile()
+    {
+        int added = jdbcTemplate.update(
+                "INSERT INTO school_roster (school_id, kind, member_id, email, first_name, last_name) " +
+                "SELECT m.school_id, m.kind, p.user_id, p.email, p.first_name, p.last_name " +
+                "FROM (SELECT school_id, 'TEACHER' AS kind, teacher_id AS member_id FROM school_teachers " +
+                "      UNION ALL SELECT school_id, 'STUDENT', student_id FROM school_students) m " +
+                "JOIN member_profiles p ON p.user_id = m.member_id " +
+                "ON CONFLICT (school_id, kind, member_id) DO NOTHING");
+        int removed = jdbcTemplate.update(
+                "DELETE FROM school_roster r WHERE " +
+                "(r.kind = 'TEACHER' AND NOT EXISTS (SELECT 1 FROM school_teachers t " +
+                "    WHERE t.school_id = r.school_id AND t.teacher_id = r.member_id)) " +
+                "OR (r.kind = 'STUDENT' AND NOT EXISTS (SELECT 1 FROM school_students s " +
+                "    WHERE s.school_id = r.school_id AND s.student_id = r.member_id))");
+        if(added > 0 || removed > 0)
+        {
+            log.info("School roster reconciled: {} added, {} removed", added, removed);
+        }
+    }
+
+    // Событие из GET /api/v1/auth/events account-service
+    public record UserEvent(long id, String type, Long userId, String email,
+                            String firstName, String lastName, String role) {}
+}
@@ -0,0 +1,166 @@
+package com.progress.school.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.progress.school.dto.RosterMember;
+import com.progress.school.dto.RosterPage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Чтение состава школ из проекции school_roster: страницы, потоковая выгрузка и количество.
+ * Страницы упорядочены по фамилии и ID участника и читаются по индексу ix_school_roster_name
+ * без OFFSET, поэтому стоимость страницы не зависит от её номера.
+ */
+@Service
+public class RosterService {
+    private static final String PAGE_QUERY =
+            "SELECT member_id, email, first_name, last_name FROM school_roster " +
+            "WHERE school_id = ? AND kind = ? AND (last_name, member_id) > (?, ?) " +
+            "ORDER BY last_name, member_id LIMIT ?";
+    private static final String EXPORT_QUERY =
+            "SELECT member_id, email, first_name, last_name FROM school_roster " +
+            "WHERE school_id = ? AND kind = ? ORDER BY last_name, member_id";
+
+    private static final RowMapper<RosterMember> MEMBER_MAPPER = (resultSet, rowNum) -> new RosterMember(
+            resultSet.getLong("member_id"),
+            resultSet.getString("email"),
+            resultSet.getString("first_name"),
+            resultSet.getString("last_name"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ObjectMapper objectMapper;
+    private final MembershipIndex membershipIndex;
+    private final int maxPageSize;
+    private final int exportFetchSize;
+
+    public RosterService(JdbcTemplate jdbcTemplate,
+                         PlatformTransactionManager transactionManager,
+                         ObjectMapper objectMapper,
+                         MembershipIndex membershipIndex,
+                         @Value("${schools.roster.page.max-size:500}") int maxPageSize,
+                         @Value("${schools.roster.export.fetch-size:1000}") int exportFetchSize)
+    {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        this.membershipIndex = membershipIndex;
+        this.maxPageSize = maxPageSize;
+        this.exportFetchSize = exportFetchSize;
+    }
+
+    /**
+     * Страница участников школы после курсора (keyset-пагинация по фамилии и ID).
+     * @param kind Учителя или ученики
+     * @param schoolId ID школы
+     * @param cursor nextCursor предыдущей страницы, null или пустая строка для первой страницы
+     * @param limit Размер страницы, ограничивается сверху schools.roster.page.max-size
+     * @return Страница участников и курсор следующей страницы
+     * @throws IllegalArgumentException если курсор некорректен
+     */
+    public RosterPage page(MembershipIndex.Kind kind, Long schoolId, String cursor, int limit)
+    {
+        int size = Math.max(1, Math.min(limit, maxPageSize));
+        String lastName = "";
+        long lastId = 0;
+
+        if(cursor != null && !cursor.isBlank())
+        {
+            try {
+                String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = decoded.lastIndexOf('\n');
+                lastName = decoded.substring(0, separator);
+                lastId = Long.parseLong(decoded.substring(separator + 1));
+            } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("Некорректный курсор");
+            }
+        }
+
+        List<RosterMember> members = jdbcTemplate.query(PAGE_QUERY, MEMBER_MAPPER,
+                schoolId, kind.name(), lastName, lastId, size);
+
+        String nextCursor = null;
+        if(members.size() == size)
+        {
+            RosterMember last = members.get(members.size() - 1);
+            nextCursor = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                    (last.getLast_name() + "\n" + last.getId()).getBytes(StandardCharsets.UTF_8));
+        }
+        return new RosterPage(members, nextCursor);
+    }
+
+    /**
+     * Потоковая выгрузка участников школы в формате NDJSON в порядке фамилии и ID.
+     * Строки читаются серверным курсором порциями по schools.roster.export.fetch-size,
+     * поэтому расход памяти не зависит от размера школы.
+     * @param kind Учителя или ученики
+     * @param schoolId ID школы
+     * @param out Поток ответа
+     */
+    public void export(MembershipIndex.Kind kind, Long schoolId, OutputStream out) throws IOException
+    {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // Строки разделяются только переводом строки, без пробела по умолчанию между корневыми значениями
+            generator.setRootValueSeparator(null);
+
+            // Курсор PostgreSQL работает только внутри транзакции
+            readOnlyTransaction.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(EXPORT_QUERY,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(exportFetchSize);
+                statement.setLong(1, schoolId);
+                statement.setString(2, kind.name());
+                return statement;
+            }, resultSet -> {
+                try {
+                    generator.writeStartObject();
+                    generator.writeNumberField("id", resultSet.getLong("member_id"));
+                    generator.writeStringField("email", resultSet.getString("email"));
+                    generator.writeStringField("first_name", resultSet.getString("first_name"));
+                    generator.writeStringField("last_name", resultSet.getString("last_name"));
+                    generator.writeEndObject();
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        }
+    }
+
+    /**
+     * Количество участников школы без чтения строк: мощность битовой карты из MembershipIndex,
+     * до загрузки индекса - count по индексу таблицы членства.
+     * @param kind Учителя или ученики
+     * @param schoolId ID школы
+     * @return Количество участников
+     */
+    public long count(MembershipIndex.Kind kind, Long schoolId)
+    {
+        Long indexed = membershipIndex.count(kind, schoolId);
+        if(indexed != null)
+        {
+            return indexed;
+        }
+
+        String query = kind == MembershipIndex.Kind.TEACHER
+                ? "SELECT count(*) FROM school_teachers WHERE school_id = ?"
+                : "SELECT count(*) FROM school_students WHERE school_id = ?";
+        return jdbcTemplate.queryForObject(query, Long.class, schoolId);
+    }
+}
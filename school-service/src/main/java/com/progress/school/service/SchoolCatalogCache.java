@@ -0,0 +1,110 @@
+package com.progress.school.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.progress.school.dto.SchoolSummary;
+import com.progress.school.repository.SchoolRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Кеш каталога школ со сквозным чтением из БД.
+ * Список всех школ хранится уже сериализованным в JSON, поэтому GET /schools отдаёт готовые байты
+ * без обращения к Hibernate. Краткие данные отдельных школ кешируются по ID.
+ * Кеш сбрасывается при создании, изменении и удалении школы.
+ */
+@Component
+public class SchoolCatalogCache {
+    private final SchoolRepository schoolRepository;
+    private final ObjectMapper objectMapper;
+    private final Cache<Long, SchoolSummary> summaries;
+
+    private volatile byte[] catalogJson;
+    // Увеличивается при каждом сбросе, чтобы не сохранить список, прочитанный до изменения
+    private final AtomicLong generation = new AtomicLong();
+
+    public SchoolCatalogCache(SchoolRepository schoolRepository,
+                              ObjectMapper objectMapper,
+                              @Value("${schools.cache.max-size:50000}") long maxSize)
+    {
+        this.schoolRepository = schoolRepository;
+        this.objectMapper = objectMapper;
+        this.summaries = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    /**
+     * Список всех школ в JSON.
+     * @return Сериализованный массив кратких данных школ, упорядоченных по ID
+     */
+    public byte[] catalogJson()
+    {
+        byte[] json = catalogJson;
+        if(json != null)
+        {
+            return json;
+        }
+
+        long loadedGeneration = generation.get();
+        try {
+            json = objectMapper.writeValueAsBytes(schoolRepository.findAllSummaries());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+
+        synchronized (this) {
+            if(generation.get() == loadedGeneration)
+            {
+                catalogJson = json;
+            }
+        }
+        return json;
+    }
+
+    /**
+     * Краткие данные школы.
+     * @param id ID школы
+     * @return Данные школы или null, если школа не найдена
+     */
+    public SchoolSummary get(Long id)
+    {
+        return summaries.get(id, key -> schoolRepository.findSummaryById(key).orElse(null));
+    }
+
+    /**
+     * Сброс кеша после изменения школы.
+     * Внутри транзакции сброс выполняется после её фиксации, чтобы параллельное чтение
+     * не закешировало данные до изменения.
+     * @param id ID изменённой школы
+     */
+    public void invalidate(Long id)
+    {
+        if(TransactionSynchronizationManager.isSynchronizationActive())
+        {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(id);
+                }
+            });
+        }
+        else
+        {
+            evict(id);
+        }
+    }
+
+    private synchronized void evict(Long id)
+    {
+        generation.incrementAndGet();
+        catalogJson = null;
+        summaries.invalidate(id);
+    }
+}
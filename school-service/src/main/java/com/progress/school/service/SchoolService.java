@@ -1,17 +1,45 @@
 package com.progress.school.service;
 
 import com.progress.school.dto.CreateRequest;
+import com.progress.school.dto.SchoolPage;
+import com.progress.school.dto.SchoolSummary;
 import com.progress.school.model.School;
 import com.progress.school.repository.SchoolRepository;
+import com.progress.school.repository.SchoolTeacherRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Locale;
 
 @Service
 public class SchoolService {
     private final SchoolRepository schoolRepository;
+    private final SchoolTeacherRepository schoolTeacherRepository;
+    private final SchoolCatalogCache schoolCatalogCache;
+    private final MembershipIndex membershipIndex;
+    private final RosterProjection rosterProjection;
+    private final SchoolStatsService schoolStatsService;
+    private final int maxPageSize;
 
-    public SchoolService(SchoolRepository schoolRepository)
+    public SchoolService(SchoolRepository schoolRepository,
+                         SchoolTeacherRepository schoolTeacherRepository,
+                         SchoolCatalogCache schoolCatalogCache,
+                         MembershipIndex membershipIndex,
+                         RosterProjection rosterProjection,
+                         SchoolStatsService schoolStatsService,
+                         @Value("${schools.page.max-size:500}") int maxPageSize)
     {
+        this.membershipIndex = membershipIndex;
+        this.rosterProjection = rosterProjection;
+        this.schoolStatsService = schoolStatsService;
+        this.maxPageSize = maxPageSize;
         this.schoolRepository = schoolRepository;
+        this.schoolTeacherRepository = schoolTeacherRepository;
+        this.schoolCatalogCache = schoolCatalogCache;
     }
 
     /**
@@ -31,6 +59,7 @@ public class SchoolService {
         school.setAddress(request.getAddress());
 
         schoolRepository.save(school);
+        schoolCatalogCache.invalidate(school.getId());
     }
 
     /**
@@ -47,5 +76,54 @@ public class SchoolService {
         if(request.getAddress() != null) school.setAddress(request.getAddress());
 
         schoolRepository.save(school);
+        schoolCatalogCache.invalidate(id);
+    }
+
+    /**
+     * Удаление школы вместе с её учителями и учениками.
+     * Версия членства всех учителей и учеников школы увеличивается в той же транзакции,
+     * чтобы список школ в их JWT перестал считаться актуальным.
+     * @param id ID школы
+     * @throws UsernameNotFoundException если школа не найдена
+     */
+    @Transactional
+    public void deleteSchool(Long id)
+    {
+        School school = schoolRepository.findById(id)
+                .orElseThrow(() -> new UsernameNotFoundException("Школа не найдена"));
+
+        schoolTeacherRepository.bumpMembershipVersions(id);
+        schoolTeacherRepository.deleteTeachersBySchoolId(id);
+        schoolTeacherRepository.deleteStudentsBySchoolId(id);
+        schoolRepository.delete(school);
+        rosterProjection.removeSchool(id);
+        schoolStatsService.removeSchool(id);
+        schoolCatalogCache.invalidate(id);
+        membershipIndex.recordSchoolRemoved(id);
+    }
+
+    /**
+     * Страница школ после указанного ID (keyset-пагинация) с поиском по префиксу названия или адреса.
+     * @param query Префикс названия или адреса без учёта регистра, null или пустая строка - без поиска
+     * @param cursor ID последней школы предыдущей страницы, 0 для первой страницы
+     * @param limit Размер страницы, ограничивается сверху schools.page.max-size
+     * @return Страница кратких данных школ и курсор следующей страницы
+     */
+    public SchoolPage page(String query, long cursor, int limit)
+    {
+        int size = Math.max(1, Math.min(limit, maxPageSize));
+        PageRequest pageRequest = PageRequest.of(0, size);
+
+        List<SchoolSummary> schools = query == null || query.isBlank()
+                ? schoolRepository.findSummariesAfter(cursor, pageRequest)
+                : schoolRepository.searchSummariesAfter(escapeLike(query.strip().toLowerCase(Locale.ROOT)) + "%", cursor, pageRequest);
+
+        Long nextCursor = schools.size() == size ? schools.get(schools.size() - 1).getId() : null;
+        return new SchoolPage(schools, nextCursor);
+    }
+
+    private static String escapeLike(String value)
+    {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
     }
 }
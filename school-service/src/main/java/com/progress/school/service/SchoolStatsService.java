@@ -0,0 +1,277 @@
+package com.progress.school.service;
+
+import com.progress.school.dto.SchoolStats;
+import com.progress.school.dto.SchoolStatsPage;
+import com.progress.school.dto.StatsDelta;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.sql.Date;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Статистика школ для панели администратора: количество учителей и учеников, уроков в неделю
+ * и посещаемость за последние schools.stats.attendance-days дней.
+ *
+ * Счётчики хранятся в school_stats и school_attendance_daily и меняются на величину изменения:
+ * состав школы - в транзакции EnrollmentService, уроки и посещаемость - по сообщениям
+ * timetable-service и document-service (POST /api/v1/schools/stats/deltas).
+ * Сообщение может потеряться, поэтому раз в schools.stats.reconcile-interval счётчики
+ * пересчитываются по таблицам членства и по агрегатам, которые отдают timetable-service и document-service.
+ */
+@Service
+public class SchoolStatsService {
+    private static final Logger log = LoggerFactory.getLogger(SchoolStatsService.class);
+
+    private static final String STATS_QUERY =
+            "SELECT s.id AS school_id, COALESCE(st.teacher_count, 0) AS teacher_count, " +
+            "COALESCE(st.student_count, 0) AS student_count, COALESCE(st.weekly_lessons, 0) AS weekly_lessons, " +
+            "COALESCE(a.present, 0) AS present, COALESCE(a.absent, 0) AS absent " +
+            "FROM schools s " +
+            "LEFT JOIN school_stats st ON st.school_id = s.id " +
+            "LEFT JOIN LATERAL (SELECT sum(d.present) AS present, sum(d.absent) AS absent " +
+            "    FROM school_attendance_daily d WHERE d.school_id = s.id AND d.day >= ?) a ON true ";
+
+    private static final String ADD_LESSONS_QUERY =
+            "INSERT INTO school_stats (school_id, weekly_lessons) VALUES (?, ?) " +
+            "ON CONFLICT (school_id) DO UPDATE SET weekly_lessons = school_stats.weekly_lessons + EXCLUDED.weekly_lessons";
+    private static final String ADD_ATTENDANCE_QUERY =
+            "INSERT INTO school_attendance_daily (school_id, day, present, absent) VALUES (?, ?, ?, ?) " +
+            "ON CONFLICT (school_id, day) DO UPDATE SET present = school_attendance_daily.present + EXCLUDED.present, " +
+            "absent = school_attendance_daily.absent + EXCLUDED.absent";
+
+    private static final RowMapper<SchoolStats> STATS_MAPPER = (resultSet, rowNum) -> new SchoolStats(
+            resultSet.getLong("school_id"),
+            resultSet.getLong("teacher_count"),
+            resultSet.getLong("student_count"),
+            resultSet.getLong("weekly_lessons"),
+            resultSet.getLong("present"),
+            resultSet.getLong("absent"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final RestTemplate restTemplate;
+    private final String timetableCountsUrl;
+    private final String attendanceCountsUrl;
+    private final HttpEntity<Void> countsRequest;
+    private final int attendanceDays;
+    private final int maxPageSize;
+    private final int maxDeltas;
+
+    public SchoolStatsService(JdbcTemplate jdbcTemplate,
+                              TransactionTemplate transactionTemplate,
+                              @Value("${schools.stats.timetable-counts-url:http://timetable-service:8082/api/v1/timetables/counts}") String timetableCountsUrl,
+                              @Value("${schools.stats.attendance-counts-url:http://document-service:8083/api/v1/documents/attendance-counts}") String attendanceCountsUrl,
+                              @Value("${schools.stats.attendance-days:30}") int attendanceDays,
+                              @Value("${schools.stats.page.max-size:500}") int maxPageSize,
+                              @Value("${schools.stats.deltas.max-size:1000}") int maxDeltas,
+                              @Value("${schools.stats.timeout:PT10S}") Duration timeout,
+                              @Value("${security.service-token:}") String serviceToken)
+    {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(timeout);
+        requestFactory.setReadTimeout(timeout);
+        this.restTemplate = new RestTemplate(requestFactory);
+        this.timetableCountsUrl = timetableCountsUrl;
+        this.attendanceCountsUrl = attendanceCountsUrl;
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("X-Service-Token", serviceToken);
+        this.countsRequest = new HttpEntity<>(headers);
+        this.attendanceDays = attendanceDays;
+        this.maxPageSize = maxPageSize;
+        this.maxDeltas = maxDeltas;
+    }
+
+    /**
+     * Статистика одной школы.
+     * @param schoolId ID школы
+     * @return Статистика или null, если школа не найдена
+     */
+    public SchoolStats get(Long schoolId)
+    {
+        List<SchoolStats> stats = jdbcTemplate.query(STATS_QUERY + "WHERE s.id = ?", STATS_MAPPER,
+                Date.valueOf(attendanceFrom()), schoolId);
+        return stats.isEmpty() ? null : stats.get(0);
+    }
+
+    /**
+     * Статистика школ после указанного ID (keyset-пагинация), одним запросом на страницу.
+     * @param cursor ID последней школы предыдущей страницы, 0 для первой страницы
+     * @param limit Размер страницы, ограничивается сверху schools.stats.page.max-size
+     * @return Страница статистики и курсор следующей страницы
+     */
+    public SchoolStatsPage page(long cursor, int limit)
+    {
+        int size = Math.max(1, Math.min(limit, maxPageSize));
+        List<SchoolStats> stats = jdbcTemplate.query(STATS_QUERY + "WHERE s.id > ? ORDER BY s.id LIMIT ?", STATS_MAPPER,
+                Date.valueOf(attendanceFrom()), cursor, size);
+
+        Long nextCursor = stats.size() == size ? stats.get(stats.size() - 1).getSchoolId() : null;
+        return new SchoolStatsPage(stats, nextCursor);
+    }
+
+    /**
+     * Изменение количества участников школы. Должно вызываться в транзакции изменения состава.
+     * @param kind Учителя или ученики
+     * @param schoolId ID школы
+     * @param delta На сколько изменилось количество
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void adjustMembers(MembershipIndex.Kind kind, Long schoolId, long delta)
+    {
+        String column = kind == MembershipIndex.Kind.TEACHER ? "teacher_count" : "student_count";
+        jdbcTemplate.update("INSERT INTO school_stats (school_id, " + column + ") VALUES (?, ?) " +
+                "ON CONFLICT (school_id) DO UPDATE SET " + column + " = school_stats." + column + " + EXCLUDED." + column,
+                schoolId, delta);
+    }
+
+    /**
+     * Применение изменений уроков и посещаемости от других сервисов.
+     * @param deltas Изменения, записи без schoolId пропускаются
+     * @throws IllegalArgumentException если превышен schools.stats.deltas.max-size
+     */
+    @Transactional
+    public void apply(List<StatsDelta> deltas)
+    {
+        if(deltas.size() > maxDeltas)
+        {
+            throw new IllegalArgumentException("Превышен максимальный размер пакета: " + maxDeltas);
+        }
+
+        List<StatsDelta> lessons = deltas.stream()
+                .filter(delta -> delta != null && delta.getSchoolId() != null && delta.getLessons() != 0)
+                .toList();
+        List<StatsDelta> attendance = deltas.stream()
+                .filter(delta -> delta != null && delta.getSchoolId() != null && delta.getDate() != null)
+                .filter(delta -> delta.getPresent() != 0 || delta.getAbsent() != 0)
+                .toList();
+
+        jdbcTemplate.batchUpdate(ADD_LESSONS_QUERY, lessons, lessons.size(), (statement, delta) -> {
+            statement.setLong(1, delta.getSchoolId());
+            statement.setLong(2, delta.getLessons());
+        });
+        jdbcTemplate.batchUpdate(ADD_ATTENDANCE_QUERY, attendance, attendance.size(), (statement, delta) -> {
+            statement.setLong(1, delta.getSchoolId());
+            statement.setDate(2, Date.valueOf(delta.getDate()));
+            statement.setLong(3, delta.getPresent());
+            statement.setLong(4, delta.getAbsent());
+        });
+    }
+
+    /**
+     * Удаление статистики школы. Должно вызываться в транзакции удаления школы.
+     * @param schoolId ID школы
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void removeSchool(Long schoolId)
+    {
+        jdbcTemplate.update("DELETE FROM school_stats WHERE school_id = ?", schoolId);
+        jdbcTemplate.update("DELETE FROM school_attendance_daily WHERE school_id = ?", schoolId);
+    }
+
+    /**
+     * Пересчёт счётчиков. Каждая часть сверяется отдельно, недоступность одного сервиса
+     * не мешает сверке остальных.
+     */
+    @Scheduled(initialDelayString = "${schools.stats.initial-delay:PT1M}",
+            fixedDelayString = "${schools.stats.reconcile-interval:PT1H}")
+    public void reconcile()
+    {
+        transactionTemplate.executeWithoutResult(status -> reconcileMembers());
+
+        try {
+            List<LessonCount> lessons = restTemplate.exchange(timetableCountsUrl, HttpMethod.GET, countsRequest,
+                    new ParameterizedTypeReference<List<LessonCount>>() {}).getBody();
+            if(lessons != null)
+            {
+                transactionTemplate.executeWithoutResult(status -> reconcileLessons(lessons));
+            }
+        } catch (RestClientException e) {
+            log.warn("Failed to read lesson counts from timetable-service: {}", e.getMessage());
+        }
+
+        try {
+            LocalDate from = attendanceFrom();
+            List<AttendanceCount> attendance = restTemplate.exchange(attendanceCountsUrl + "?from=" + from,
+                    HttpMethod.GET, countsRequest, new ParameterizedTypeReference<List<AttendanceCount>>() {}).getBody();
+            if(attendance != null)
+            {
+                transactionTemplate.executeWithoutResult(status -> reconcileAttendance(from, attendance));
+            }
+        } catch (RestClientException e) {
+            log.warn("Failed to read attendance counts from document-service: {}", e.getMessage());
+        }
+    }
+
+    private void reconcileMembers()
+    {
+        jdbcTemplate.update(
+                "INSERT INTO school_stats (school_id, teacher_count, student_count) " +
+                "SELECT s.id, " +
+                "(SELECT count(*) FROM school_teachers t WHERE t.school_id = s.id), " +
+                "(SELECT count(*) FROM school_students st WHERE st.school_id = s.id) " +
+                "FROM schools s " +
+                "ON CONFLICT (school_id) DO UPDATE " +
+                "SET teacher_count = EXCLUDED.teacher_count, student_count = EXCLUDED.student_count");
+    }
+
+    private void reconcileLessons(List<LessonCount> lessons)
+    {
+        jdbcTemplate.update("UPDATE school_stats SET weekly_lessons = 0 WHERE weekly_lessons <> 0");
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO school_stats (school_id, weekly_lessons) VALUES (?, ?) " +
+                "ON CONFLICT (school_id) DO UPDATE SET weekly_lessons = EXCLUDED.weekly_lessons",
+                lessons, lessons.size(), (statement, count) -> {
+                    statement.setLong(1, count.schoolId());
+                    statement.setLong(2, count.lessons());
+                });
+    }
+
+    // Дни до начала окна больше не нужны и удаляются вместе с пересчитываемыми
+    private void reconcileAttendance(LocalDate from, List<AttendanceCount> attendance)
+    {
+        List<AttendanceCount> recent = attendance.stream()
+                .filter(count -> count.schoolId() != null && count.date() != null && !count.date().isBefore(from))
+                .toList();
+
+        jdbcTemplate.update("DELETE FROM school_attendance_daily");
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO school_attendance_daily (school_id, day, present, absent) VALUES (?, ?, ?, ?)",
+                recent, recent.size(), (statement, count) -> {
+                    statement.setLong(1, count.schoolId());
+                    statement.setDate(2, Date.valueOf(count.date()));
+                    statement.setLong(3, count.present());
+                    statement.setLong(4, count.absent());
+                });
+    }
+
+    private LocalDate attendanceFrom()
+    {
+        return LocalDate.now().minusDays(attendanceDays - 1L);
+    }
+
+    // Ответ GET /api/v1/timetables/counts timetable-service
+    public record LessonCount(Long schoolId, long lessons) {}
+
+    // Ответ GET /api/v1/documents/attendance-counts document-service
+    public record AttendanceCount(Long schoolId, LocalDate date, long present, long absent) {}
+}
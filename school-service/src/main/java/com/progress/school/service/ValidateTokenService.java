@@ -32,7 +32,7 @@ public class ValidateTokenService {
         HttpEntity<Void> entity = new HttpEntity<>(headers);
 
         ResponseEntity<Map<String, Object>> response = restTemplate.exchange(
-                "http://account-service:8080/api/v1/auth/validate",
+                "http://account-service:9080/api/v1/auth/validate",
                 HttpMethod.GET,
                 entity,
                 new ParameterizedTypeReference<Map<String, Object>>() {}
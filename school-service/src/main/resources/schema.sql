@@ -0,0 +1,74 @@
+-- Выполняется после обновления схемы Hibernate (spring.jpa.defer-datasource-initialization)
+
+-- Версия членства пользователя в школах. Увеличивается при каждом изменении состава школ,
+-- account-service сверяет её с claim msv в JWT
+CREATE TABLE IF NOT EXISTS membership_versions (
+    user_id BIGINT PRIMARY KEY,
+    version BIGINT NOT NULL
+);
+
+-- Журнал изменений состава школ для индекса членства в памяти всех экземпляров school-service.
+-- Пишется под advisory-блокировкой, поэтому id идут в порядке фиксации; kind = NULL - удаление школы
+CREATE TABLE IF NOT EXISTS membership_changes (
+    id          BIGSERIAL PRIMARY KEY,
+    kind        VARCHAR(16),
+    school_id   BIGINT NOT NULL,
+    user_ids    BIGINT[],
+    added       BOOLEAN NOT NULL,
+    created_at  TIMESTAMP NOT NULL
+);
+CREATE INDEX IF NOT EXISTS ix_membership_changes_created_at ON membership_changes (created_at);
+
+-- Поиск школ по префиксу названия и адреса без учёта регистра
+CREATE INDEX IF NOT EXISTS ix_schools_name_prefix ON schools (lower(name) text_pattern_ops);
+CREATE INDEX IF NOT EXISTS ix_schools_address_prefix ON schools (lower(address) text_pattern_ops);
+
+-- Проверка членства (EXISTS по паре) и уникальность пары школа-участник
+CREATE UNIQUE INDEX IF NOT EXISTS ux_school_teachers ON school_teachers (school_id, teacher_id);
+CREATE UNIQUE INDEX IF NOT EXISTS ux_school_students ON school_students (school_id, student_id);
+-- Школы пользователя, account-service читает их при выдаче JWT
+CREATE INDEX IF NOT EXISTS ix_school_teachers_teacher ON school_teachers (teacher_id);
+CREATE INDEX IF NOT EXISTS ix_school_students_student ON school_students (student_id);
+
+-- Профили участников школ, копия данных account-service из потока событий user_outbox
+CREATE TABLE IF NOT EXISTS member_profiles (
+    user_id     BIGINT PRIMARY KEY,
+    email       VARCHAR(255) NOT NULL,
+    first_name  VARCHAR(255),
+    last_name   VARCHAR(255),
+    role        VARCHAR(32)
+);
+-- Денормализованный состав школ для чтения списков учителей и учеников без соединения с users
+CREATE TABLE IF NOT EXISTS school_roster (
+    school_id   BIGINT NOT NULL,
+    kind        VARCHAR(16) NOT NULL,
+    member_id   BIGINT NOT NULL,
+    email       VARCHAR(255) NOT NULL,
+    first_name  VARCHAR(255),
+    last_name   VARCHAR(255),
+    PRIMARY KEY (school_id, kind, member_id)
+);
+CREATE INDEX IF NOT EXISTS ix_school_roster_member ON school_roster (member_id);
+-- Смещения читателей потоков событий других сервисов
+CREATE TABLE IF NOT EXISTS event_offsets (
+    consumer    VARCHAR(64) PRIMARY KEY,
+    position    BIGINT NOT NULL
+);
+-- Keyset-пагинация состава школы по фамилии и ID
+CREATE INDEX IF NOT EXISTS ix_school_roster_name ON school_roster (school_id, kind, last_name, member_id);
+
+-- Счётчики для панели администратора, обновляются при изменениях и периодически сверяются
+CREATE TABLE IF NOT EXISTS school_stats (
+    school_id       BIGINT PRIMARY KEY,
+    teacher_count   BIGINT NOT NULL DEFAULT 0,
+    student_count   BIGINT NOT NULL DEFAULT 0,
+    weekly_lessons  BIGINT NOT NULL DEFAULT 0
+);
+-- Посещаемость по дням из документов document-service, хранятся только последние дни
+CREATE TABLE IF NOT EXISTS school_attendance_daily (
+    school_id   BIGINT NOT NULL,
+    day         DATE NOT NULL,
+    present     BIGINT NOT NULL DEFAULT 0,
+    absent      BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (school_id, day)
+);
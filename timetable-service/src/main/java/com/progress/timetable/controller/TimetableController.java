@@ -4,6 +4,7 @@ import com.progress.timetable.dto.CreateRequest;
 import com.progress.timetable.model.Timetable;
 import com.progress.timetable.repository.TimetableBookRepository;
 import com.progress.timetable.repository.TimetableRepository;
+import com.progress.timetable.service.MembershipCheckUnavailableException;
 import com.progress.timetable.service.TimetableService;
 import com.progress.timetable.service.ValidateSchoolTeacherService;
 import com.progress.timetable.service.ValidateTokenService;
@@ -13,11 +14,14 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -30,12 +34,15 @@ public class TimetableController {
     private final TimetableService timetableService;
     private final TimetableRepository timetableRepository;
     private final TimetableBookRepository timetableBookRepository;
+    private final int maxBatchSize;
 
     public TimetableController(ValidateTokenService validateTokenService,
                                TimetableService timetableService,
                                ValidateSchoolTeacherService validateSchoolTeacherService,
                                TimetableRepository timetableRepository,
-                               TimetableBookRepository timetableBookRepository) {
+                               TimetableBookRepository timetableBookRepository,
+                               @Value("${timetables.batch.max-size:1000}") int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
         this.validateTokenService = validateTokenService;
         this.timetableService = timetableService;
         this.validateSchoolTeacherService = validateSchoolTeacherService;
@@ -50,6 +57,29 @@ public class TimetableController {
         return validateTokenService.getUserInfo(header);
     }
 
+    /**
+     * Проверка членства учителя в школе по claim schools из токена.
+     * Account-service возвращает schools только для актуального членства, поэтому удалённый вызов
+     * validate-teacher нужен лишь когда claim отсутствует или расписание создаётся для другого учителя.
+     */
+    private static boolean isOwnSchool(Map<String, Object> userInfo, Long schoolId, Long teacherId)
+    {
+        Object id = userInfo.get("id");
+        Object schools = userInfo.get("schools");
+        if(!(id instanceof Number) || !(schools instanceof List<?> schoolIds) || schoolId == null || teacherId == null) return false;
+
+        return ((Number) id).longValue() == teacherId
+                && "TEACHER".equals(userInfo.get("role"))
+                && schoolIds.stream().anyMatch(school -> school instanceof Number n && n.longValue() == schoolId);
+    }
+
+    // Проверку не удалось выполнить: это не то же самое, что учитель не найден
+    private static ResponseEntity<String> membershipCheckUnavailable()
+    {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body("Не удалось проверить школу и учителя, повторите попытку позже");
+    }
+
     @PostMapping("/timetables")
     @Operation(summary = "Создание расписания",
         description = "Создаёт новое расписание, доступно только для учителя и ADMIN.")
@@ -57,7 +87,8 @@ public class TimetableController {
         @ApiResponse(responseCode = "200", description = "Расписание добавлено"),
         @ApiResponse(responseCode = "401", description = "Невалидный или отсутствующий токен"),
         @ApiResponse(responseCode = "403", description = "Недостаточно прав"),
-        @ApiResponse(responseCode = "404", description = "Школа или учитель не найдены")
+        @ApiResponse(responseCode = "404", description = "Школа или учитель не найдены"),
+        @ApiResponse(responseCode = "503", description = "School-service не ответил, повторите попытку позже")
     })
     public ResponseEntity<String> createTimetable(
                 @io.swagger.v3.oas.annotations.parameters.RequestBody(description = "Данные для создания расписания")
@@ -75,15 +106,89 @@ public class TimetableController {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Недостаточно прав");
         }
 
-        if(!validateSchoolTeacherService.isValidateTeacher(request.getSchoolId(), request.getTeacherId()))
-        {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Школа или учитель не найдены");
+        try {
+            if(!isOwnSchool(userInfo, request.getSchoolId(), request.getTeacherId())
+                    && !validateSchoolTeacherService.isValidateTeacher(request.getSchoolId(), request.getTeacherId()))
+            {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Школа или учитель не найдены");
+            }
+        } catch (MembershipCheckUnavailableException e) {
+            return membershipCheckUnavailable();
         }
 
         timetableService.createTimetable(request);
         return ResponseEntity.ok("Расписание добавлено");
     }
 
+    @PostMapping("/timetables/batch")
+    @Operation(summary = "Пакетное создание расписаний",
+        description = "Создаёт несколько расписаний. Учителя проверяются одним запросом к school-service, " +
+                "при ошибке хотя бы в одной записи ничего не сохраняется.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Расписания добавлены"),
+        @ApiResponse(responseCode = "400", description = "Превышен размер пакета"),
+        @ApiResponse(responseCode = "401", description = "Невалидный или отсутствующий токен"),
+        @ApiResponse(responseCode = "403", description = "Недостаточно прав"),
+        @ApiResponse(responseCode = "404", description = "Школа или учитель не найдены"),
+        @ApiResponse(responseCode = "503", description = "School-service не ответил, повторите попытку позже")
+    })
+    public ResponseEntity<?> createTimetables(
+                @io.swagger.v3.oas.annotations.parameters.RequestBody(description = "Список расписаний")
+                @RequestBody List<CreateRequest> requests,
+                HttpServletRequest httpServletRequest)
+    {
+        Map<String, Object> userInfo = extractUser(httpServletRequest);
+        if(userInfo == null)
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Невалидный или отсутствующий токен");
+
+        if("STUDENT".equals(userInfo.get("role")))
+        {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Недостаточно прав");
+        }
+
+        if(requests.size() > maxBatchSize)
+        {
+            return ResponseEntity.badRequest().body("Превышен максимальный размер пакета: " + maxBatchSize);
+        }
+
+        // В school-service уходят только пары, которые нельзя подтвердить по токену
+        List<Integer> remote = new ArrayList<>();
+        List<Map<String, Long>> pairs = new ArrayList<>();
+        for(int i = 0; i < requests.size(); i++)
+        {
+            CreateRequest request = requests.get(i);
+            if(request == null || request.getSchoolId() == null || request.getTeacherId() == null)
+            {
+                return ResponseEntity.badRequest().body("Не указаны школа или учитель в записи " + i);
+            }
+            if(!isOwnSchool(userInfo, request.getSchoolId(), request.getTeacherId()))
+            {
+                remote.add(i);
+                pairs.add(Map.of("schoolId", request.getSchoolId(), "teacherId", request.getTeacherId()));
+            }
+        }
+
+        List<Boolean> valid;
+        try {
+            valid = validateSchoolTeacherService.areValidateTeachers(pairs);
+        } catch (MembershipCheckUnavailableException e) {
+            return membershipCheckUnavailable();
+        }
+        List<Integer> notFound = new ArrayList<>();
+        for(int i = 0; i < remote.size(); i++)
+        {
+            if(!Boolean.TRUE.equals(valid.get(i))) notFound.add(remote.get(i));
+        }
+        if(!notFound.isEmpty())
+        {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "Школа или учитель не найдены", "indexes", notFound));
+        }
+
+        timetableService.createTimetables(requests);
+        return ResponseEntity.ok("Расписания добавлены: " + requests.size());
+    }
+
     @GetMapping("/timetables")
     @Operation(summary = "Получение всех расписаний",
             description = "Возвращает список всех расписаний.")
@@ -146,7 +251,7 @@ public class TimetableController {
         Timetable timetable = timetableRepository.findById(id)
                 .orElseThrow(() -> new UsernameNotFoundException("Расписание не найдено"));
 
-        timetableRepository.delete(timetable);
+        timetableService.deleteTimetable(timetable);
         return ResponseEntity.ok("Расписание удалено");
     }
 
@@ -186,6 +291,15 @@ public class TimetableController {
         return ResponseEntity.ok(timetableRepository.existsById(id));
     }
 
+    @GetMapping("/timetables/counts")
+    @Operation(summary = "Количество уроков по школам",
+        description = "Возвращает количество расписаний (уроков в неделю) для каждой школы. " +
+                "Используется school-service для сверки статистики, требуется заголовок X-Service-Token.")
+    public ResponseEntity<?> countLessonsBySchool()
+    {
+        return ResponseEntity.ok(timetableRepository.countLessonsBySchool());
+    }
+
     @GetMapping("/timetables/school/{schoolId}")
     @Operation(summary = "Получение расписаний по ID школы",
         description = "Возвращает все расписания, связанные с указанной школой. Требуется авторизация.")
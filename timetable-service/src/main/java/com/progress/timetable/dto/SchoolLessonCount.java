@@ -0,0 +1,6 @@
+package com.progress.timetable.dto;
+
+public interface SchoolLessonCount {
+    Long getSchoolId();
+    long getLessons();
+}
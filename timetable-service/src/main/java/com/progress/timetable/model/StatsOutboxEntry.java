@@ -0,0 +1,33 @@
+package com.progress.timetable.model;
+
+import jakarta.persistence.*;
+
+// Изменение количества уроков школы, ожидающее отправки в school-service
+@Entity
+@Table(name = "stats_outbox")
+public class StatsOutboxEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, name = "school_id")
+    private Long schoolId;
+
+    @Column(nullable = false)
+    private Long lessons;
+
+    public StatsOutboxEntry() {}
+
+    public StatsOutboxEntry(Long schoolId, Long lessons)
+    {
+        this.schoolId = schoolId;
+        this.lessons = lessons;
+    }
+
+    public Long getId() { return id; }
+
+    public Long getSchoolId() { return schoolId; }
+
+    public Long getLessons() { return lessons; }
+}
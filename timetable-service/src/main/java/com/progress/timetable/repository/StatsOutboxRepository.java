@@ -0,0 +1,16 @@
+package com.progress.timetable.repository;
+
+import com.progress.timetable.model.StatsOutboxEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface StatsOutboxRepository extends JpaRepository<StatsOutboxEntry, Long> {
+    // Самые старые записи с блокировкой; записи, которые отправляет другой экземпляр, пропускаются
+    @Query(value = "SELECT * FROM stats_outbox ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<StatsOutboxEntry> lockOldest(@Param("limit") int limit);
+}
@@ -1,7 +1,9 @@
 package com.progress.timetable.repository;
 
+import com.progress.timetable.dto.SchoolLessonCount;
 import com.progress.timetable.model.Timetable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -11,4 +13,8 @@ import java.util.List;
 public interface TimetableRepository extends JpaRepository<Timetable, Long> {
     List<Timetable> findAllBySchoolId(Long school_id);
     List<Timetable> findAllByTeacherId(Long teacher_id);
+
+    // Количество уроков в неделю по школам, для сверки статистики в school-service
+    @Query("SELECT t.schoolId AS schoolId, COUNT(t) AS lessons FROM Timetable t GROUP BY t.schoolId")
+    List<SchoolLessonCount> countLessonsBySchool();
 }
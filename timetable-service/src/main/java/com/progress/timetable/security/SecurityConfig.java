@@ -9,6 +9,13 @@ import org.springframework.security.web.SecurityFilterChain;
 
 @Configuration
 public class SecurityConfig {
+    private final ServiceAuthorization serviceAuthorization;
+
+    public SecurityConfig(ServiceAuthorization serviceAuthorization)
+    {
+        this.serviceAuthorization = serviceAuthorization;
+    }
+
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http
@@ -16,7 +23,11 @@ public class SecurityConfig {
             .authorizeHttpRequests(auth -> auth
                 .requestMatchers("/swagger-ui/**", "/v3/api-docs/**", "/swagger-ui.html").permitAll()
 
+                // Только для school-service, с X-Service-Token; правило стоит раньше /api/v1/timetables/*
+                .requestMatchers(HttpMethod.GET, "/api/v1/timetables/counts").access(serviceAuthorization)
+
                 .requestMatchers(HttpMethod.POST, "/api/v1/timetables").permitAll()
+                .requestMatchers(HttpMethod.POST, "/api/v1/timetables/batch").permitAll()
                 .requestMatchers(HttpMethod.GET, "/api/v1/timetables").permitAll()
                 .requestMatchers(HttpMethod.GET, "/api/v1/timetables/*").permitAll()
                 .requestMatchers(HttpMethod.PUT, "/api/v1/timetables/*").permitAll()
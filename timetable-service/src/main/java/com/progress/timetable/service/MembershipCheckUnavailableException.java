@@ -0,0 +1,11 @@
+package com.progress.timetable.service;
+
+/**
+ * School-service не ответил на проверку членства. Означает, что проверить учителя не удалось,
+ * а не что учитель не состоит в школе.
+ */
+public class MembershipCheckUnavailableException extends RuntimeException {
+    public MembershipCheckUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,116 @@
+package com.progress.timetable.service;
+
+import com.progress.timetable.model.StatsOutboxEntry;
+import com.progress.timetable.repository.StatsOutboxRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Сообщает school-service об изменении количества уроков школы для счётчиков статистики.
+ * Изменения записываются в stats_outbox в транзакции вызывающего кода, а отправляются фоновой задачей
+ * раз в stats.outbox.publish-interval, поэтому запрос не ждёт school-service, а изменения откатанной
+ * транзакции не отправляются. Если school-service недоступен, записи остаются в stats_outbox
+ * до следующей попытки; расхождения всё равно устраняет сверка с GET /api/v1/timetables/counts.
+ */
+@Service
+public class SchoolStatsClient {
+    private static final Logger log = LoggerFactory.getLogger(SchoolStatsClient.class);
+
+    private final StatsOutboxRepository statsOutboxRepository;
+    private final RestTemplate restTemplate;
+    private final String serviceToken;
+    private final int batchSize;
+
+    public SchoolStatsClient(StatsOutboxRepository statsOutboxRepository,
+                             @Value("${security.service-token:}") String serviceToken,
+                             @Value("${stats.outbox.batch-size:500}") int batchSize)
+    {
+        this.statsOutboxRepository = statsOutboxRepository;
+        this.serviceToken = serviceToken;
+        this.batchSize = batchSize;
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(Duration.ofSeconds(1));
+        requestFactory.setReadTimeout(Duration.ofSeconds(2));
+        this.restTemplate = new RestTemplate(requestFactory);
+    }
+
+    /**
+     * Запись изменений количества уроков в stats_outbox в текущей транзакции.
+     * @param lessonsBySchool ID школы -> на сколько изменилось количество уроков
+     */
+    @Transactional
+    public void lessonsChanged(Map<Long, Long> lessonsBySchool)
+    {
+        List<StatsOutboxEntry> entries = lessonsBySchool.entrySet().stream()
+                .filter(entry -> entry.getKey() != null && entry.getValue() != 0)
+                .map(entry -> new StatsOutboxEntry(entry.getKey(), entry.getValue()))
+                .toList();
+        if(!entries.isEmpty())
+        {
+            statsOutboxRepository.saveAll(entries);
+        }
+    }
+
+    /**
+     * Отправка накопленных изменений пачкой не больше stats.outbox.batch-size записей.
+     * Записи удаляются только после успешного ответа school-service.
+     */
+    @Scheduled(fixedDelayString = "${stats.outbox.publish-interval:PT1S}")
+    @Transactional
+    public void publish()
+    {
+        List<StatsOutboxEntry> entries = statsOutboxRepository.lockOldest(batchSize);
+        if(entries.isEmpty())
+        {
+            return;
+        }
+
+        Map<Long, Long> lessonsBySchool = new LinkedHashMap<>();
+        for(StatsOutboxEntry entry : entries)
+        {
+            lessonsBySchool.merge(entry.getSchoolId(), entry.getLessons(), Long::sum);
+        }
+        List<Map<String, Long>> deltas = lessonsBySchool.entrySet().stream()
+                .filter(entry -> entry.getValue() != 0)
+                .map(entry -> Map.of("schoolId", entry.getKey(), "lessons", entry.getValue()))
+                .toList();
+
+        try {
+            if(!deltas.isEmpty())
+            {
+                send(deltas);
+            }
+            statsOutboxRepository.deleteAllInBatch(entries);
+        } catch (Exception e) {
+            log.warn("Lesson stats were not sent, will retry: {}", e.getMessage());
+        }
+    }
+
+    private void send(List<Map<String, Long>> deltas)
+    {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set("X-Service-Token", serviceToken);
+        restTemplate.exchange(
+                "http://school-service:8081/api/v1/schools/stats/deltas",
+                HttpMethod.POST,
+                new HttpEntity<>(deltas, headers),
+                Void.class
+        );
+    }
+}
@@ -7,15 +7,23 @@ import com.progress.timetable.model.TimetableBookings;
 import com.progress.timetable.repository.TimetableBookRepository;
 import com.progress.timetable.repository.TimetableRepository;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Service
 public class TimetableService {
     private final TimetableRepository timetableRepository;
     private final TimetableBookRepository timetableBookRepository;
+    private final SchoolStatsClient schoolStatsClient;
 
     public TimetableService(TimetableRepository timetableRepository,
-                            TimetableBookRepository timetableBookRepository)
+                            TimetableBookRepository timetableBookRepository,
+                            SchoolStatsClient schoolStatsClient)
     {
+        this.schoolStatsClient = schoolStatsClient;
         this.timetableRepository = timetableRepository;
         this.timetableBookRepository = timetableBookRepository;
     }
@@ -24,7 +32,37 @@ public class TimetableService {
      * Создание нового расписания.
      * @param request объект с данными.
      */
+    @Transactional
     public void createTimetable(CreateRequest request)
+    {
+        Timetable timetable = timetableRepository.save(toTimetable(request));
+        schoolStatsClient.lessonsChanged(Map.of(timetable.getSchoolId(), 1L));
+    }
+
+    /**
+     * Создание нескольких расписаний в одной транзакции.
+     * @param requests список объектов с данными.
+     */
+    @Transactional
+    public void createTimetables(List<CreateRequest> requests)
+    {
+        timetableRepository.saveAll(requests.stream().map(TimetableService::toTimetable).toList());
+        schoolStatsClient.lessonsChanged(requests.stream()
+                .collect(Collectors.groupingBy(CreateRequest::getSchoolId, Collectors.counting())));
+    }
+
+    /**
+     * Удаление расписания.
+     * @param timetable Удаляемое расписание.
+     */
+    @Transactional
+    public void deleteTimetable(Timetable timetable)
+    {
+        timetableRepository.delete(timetable);
+        schoolStatsClient.lessonsChanged(Map.of(timetable.getSchoolId(), -1L));
+    }
+
+    private static Timetable toTimetable(CreateRequest request)
     {
         Timetable timetable = new Timetable();
         timetable.setSchoolId(request.getSchoolId());
@@ -39,7 +77,7 @@ public class TimetableService {
 
         timetable.setMax_students(request.getMax_students());
 
-        timetableRepository.save(timetable);
+        return timetable;
     }
 
     /**
@@ -62,10 +100,12 @@ public class TimetableService {
      * @param id ID расписания.
      * @param request Объект с обновленными данными.
      */
+    @Transactional
     public void updateTimetable(Long id, CreateRequest request)
     {
         Timetable timetable = timetableRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Расписание не найдено"));
+        Long previousSchoolId = timetable.getSchoolId();
 
         if(request.getSchoolId() != null) timetable.setSchoolId(request.getSchoolId());
         if(request.getTeacherId() != null) timetable.setTeacherId(request.getTeacherId());
@@ -80,5 +120,9 @@ public class TimetableService {
         if(request.getMax_students() != null) timetable.setMax_students(request.getMax_students());
 
         timetableRepository.save(timetable);
+        if(!previousSchoolId.equals(timetable.getSchoolId()))
+        {
+            schoolStatsClient.lessonsChanged(Map.of(previousSchoolId, -1L, timetable.getSchoolId(), 1L));
+        }
     }
 }
@@ -1,22 +1,32 @@
 package com.progress.timetable.service;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 @Service
 public class ValidateSchoolTeacherService {
+    private static final Logger log = LoggerFactory.getLogger(ValidateSchoolTeacherService.class);
+
     private final RestTemplate restTemplate;
+    private final int chunkSize;
 
-    public ValidateSchoolTeacherService()
+    public ValidateSchoolTeacherService(@Value("${timetables.validate.chunk-size:1000}") int chunkSize)
     {
         this.restTemplate = new RestTemplate();
+        this.chunkSize = chunkSize;
     }
 
     /**
@@ -24,6 +34,7 @@ public class ValidateSchoolTeacherService {
      * @param school_id ID школы
      * @param teacher_id ID учителя
      * @return Возвращает true или false в случае если не найден учитель.
+     * @throws MembershipCheckUnavailableException если school-service не ответил
      */
     public boolean isValidateTeacher(Long school_id, Long teacher_id)
     {
@@ -37,8 +48,49 @@ public class ValidateSchoolTeacherService {
             );
             return Boolean.TRUE.equals(response.getBody());
         } catch (Exception e) {
-            System.out.println("Ошибка валидации учителя или школы: " + e.getMessage());
-            return false;
+            log.warn("Teacher validation failed: {}", e.getMessage());
+            throw new MembershipCheckUnavailableException("Teacher validation failed", e);
+        }
+    }
+
+    /**
+     * Пакетная проверка учителей запросами к school-service по timetables.validate.chunk-size пар:
+     * значение не должно превышать schools.validate.max-size в school-service.
+     * @param pairs Пары {schoolId, teacherId}
+     * @return Результаты в том же порядке, что и пары
+     * @throws MembershipCheckUnavailableException если school-service не ответил или ответил некорректно
+     */
+    public List<Boolean> areValidateTeachers(List<Map<String, Long>> pairs)
+    {
+        List<Boolean> results = new ArrayList<>(pairs.size());
+        for(int from = 0; from < pairs.size(); from += chunkSize)
+        {
+            results.addAll(validateChunk(pairs.subList(from, Math.min(from + chunkSize, pairs.size()))));
+        }
+        return results;
+    }
+
+    private List<Boolean> validateChunk(List<Map<String, Long>> pairs)
+    {
+        try {
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            ResponseEntity<List<Boolean>> response = restTemplate.exchange(
+                    "http://school-service:8081/api/v1/schools/validate-teachers",
+                    HttpMethod.POST,
+                    new HttpEntity<>(pairs, headers),
+                    new ParameterizedTypeReference<List<Boolean>>() {
+                    }
+            );
+            List<Boolean> body = response.getBody();
+            if(body == null || body.size() != pairs.size())
+            {
+                throw new IllegalStateException("Unexpected response size for " + pairs.size() + " pairs");
+            }
+            return body;
+        } catch (Exception e) {
+            log.warn("Batch teacher validation failed: {}", e.getMessage());
+            throw new MembershipCheckUnavailableException("Batch teacher validation failed", e);
         }
     }
 }